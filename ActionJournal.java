@@ -0,0 +1,667 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-ahead journal of current game, so that game can be restored if program dies in the middle of it.
+ * <p>
+ * Journal has seed of the board and every move of the game. Game thread only appends moves into a buffer in memory.
+ * Background flusher thread takes the buffer every sync interval (group commit), giving game thread an empty one,
+ * and writes and syncs it to disk, so game thread never waits for the disk. Moves of idle game are synced too,
+ * at most one sync interval after they were made.
+ * Every {@link #CHECKPOINT_INTERVAL} moves journal is compacted into the seed and one checkpoint with states of all tiles,
+ * so restoring never has to replay more than that many moves. Game thread only copies the tiles, flusher writes the file.
+ * Moves before checkpoint are gone, so undo history of the game has to start again from checkpoint too (see {@link Board#resetHistory()}).
+ * <p>
+ * Record format (big endian):
+ * <li>'G' seed (long), difficulty, columns, rows, mines (int): new game</li>
+ * <li>'C' elapsed (int), flags (byte: 1 if first click is protected | 2 if practice game), tile count (int), tiles (byte: state ordinal | 0x10 if mine): checkpoint</li>
+ * <li>'M' tile, button, count, elapsed (int): mouse click on tile</li>
+ * <li>'K' key (char), elapsed (int): key press</li>
+ * <li>'E': game ended</li>
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#randomize(int, int, long)
+ */
+public class ActionJournal {
+	
+	/**
+	 * How many moves are written before journal is compacted into checkpoint
+	 */
+	public static final int CHECKPOINT_INTERVAL = 256;
+	
+	private static final int MINE = 0x10; // mine bit in checkpoint tile
+	private static final int FIRST_CLICK = 1; // first click flag of checkpoint
+	private static final int PRACTICE = 2; // practice flag of checkpoint
+	
+	private Path path; // journal file
+	private ScheduledExecutorService flusher; // background thread that writes and syncs journal, null if journal couldn't be opened
+	private volatile boolean failed = false; // has writing failed, after that moves aren't journaled
+	
+	// FLUSHER THREAD ONLY (guarded by this, close uses them after flusher has stopped)
+	private FileChannel channel; // journal file opened for appending, null if journal couldn't be written
+	private ByteBuffer back = ByteBuffer.allocateDirect(64 * 1024); // moves that flusher is writing
+	private volatile long syncs = 0; // times journal has been synced
+	private volatile long syncTime = 0; // nanoseconds spent writing and syncing
+	
+	// HANDED FROM GAME THREAD TO FLUSHER (guarded by lock)
+	private final Object lock = new Object();
+	private ByteBuffer front = ByteBuffer.allocateDirect(64 * 1024); // moves waiting to be written, game thread appends here
+	private long truncate = -1; // length that flusher cuts journal to before writing front, -1 if journal continues
+	private ByteBuffer compacted; // header and checkpoint that replace whole journal, null if there is none
+	
+	// GAME THREAD ONLY
+	private long seed; // header of current game, written again when journal is compacted
+	private int difficulty, columns, rows, mines;
+	private int moves = 0; // moves after last checkpoint
+	private boolean ended = true; // has current game ended
+	
+	/**
+	 * Holds game read from journal.
+	 * 
+	 * @see ActionJournal#read(Path)
+	 */
+	public static class Game {
+		
+		private long seed;
+		private int difficulty, columns, rows, mines;
+		private byte[] checkpoint; // tiles of checkpoint row by row, null if there isn't checkpoint
+		private boolean firstClick = true; // first click state of checkpoint
+		private boolean practice = false; // was undo used before checkpoint
+		private int elapsed = 0; // game time of last move in milliseconds
+		private ArrayList<InputEvent> moves = new ArrayList<InputEvent>(); // moves after checkpoint
+		private boolean ended = false; // did game end
+		private long length = 0; // bytes of complete records in journal
+		
+		/**
+		 * Get seed of the board.
+		 * 
+		 * @return seed
+		 */
+		public long getSeed() {
+			
+			return seed;
+		}
+		/**
+		 * Get difficulty of the game.
+		 * 
+		 * @return ordinal of difficulty
+		 */
+		public int getDifficulty() {
+			
+			return difficulty;
+		}
+		/**
+		 * Get board width in tiles.
+		 * 
+		 * @return amount of columns
+		 */
+		public int getColumns() {
+			
+			return columns;
+		}
+		/**
+		 * Get board height in tiles.
+		 * 
+		 * @return amount of rows
+		 */
+		public int getRows() {
+			
+			return rows;
+		}
+		/**
+		 * Get mine count of the board.
+		 * 
+		 * @return amount of mines
+		 */
+		public int getMines() {
+			
+			return mines;
+		}
+		/**
+		 * Get time of last move since game started.
+		 * 
+		 * @return time in milliseconds
+		 */
+		public int getElapsed() {
+			
+			return elapsed;
+		}
+		/**
+		 * Get moves that were made after checkpoint (or after game started if there is no checkpoint).
+		 * 
+		 * @return list of moves
+		 */
+		public ArrayList<InputEvent> getMoves() {
+			
+			return moves;
+		}
+		/**
+		 * Check if game ended before program stopped.
+		 * 
+		 * @return did game end
+		 */
+		public boolean isEnded() {
+			
+			return ended;
+		}
+		/**
+		 * Check if undo was used before checkpoint, practice game doesn't set a record.
+		 * Undo moves after checkpoint are in {@link #getMoves()}.
+		 * 
+		 * @return is game practice game
+		 */
+		public boolean isPractice() {
+			
+			return practice;
+		}
+		/**
+		 * Check if game has moves, so it has started.
+		 * 
+		 * @return has game started
+		 */
+		public boolean isStarted() {
+			
+			return checkpoint != null || !moves.isEmpty();
+		}
+		/**
+		 * Set mines and tile states of checkpoint to board that has been randomized with the same seed.
+		 * 
+		 * @param board board where checkpoint is applied
+		 * 
+		 * @return was there a checkpoint
+		 */
+		public boolean applyCheckpoint(Board board) {
+			
+			if(checkpoint == null) return false;
+			
+			for(int i = 0; i < checkpoint.length; i++) { // first click may have moved mines, so mines are set from checkpoint
+				board.getTile(i % columns, i / columns).setMine((checkpoint[i] & MINE) != 0);
+			}
+			board.setSurroundAll();
+			
+			for(int i = 0; i < checkpoint.length; i++) {
+				board.setTileState(i % columns, i / columns, State.values()[checkpoint[i] & ~MINE]);
+			}
+			board.setFirstClick(firstClick);
+			return true;
+		}
+	}
+	
+	/**
+	 * Write-ahead journal of current game.
+	 * 
+	 * @param path journal file
+	 * @param syncInterval milliseconds between syncs to disk, moves made during this time can be lost
+	 */
+	public ActionJournal(Path path, long syncInterval) {
+		
+		this.path = path;
+		
+		try {
+			
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			channel.position(channel.size()); // continue after existing records, game can be restored from them
+		
+		} catch(IOException ioe) {
+			
+			this.fail(ioe);
+			return;
+		}
+		
+		flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			
+			Thread t = new Thread(r, "journal-sync");
+			t.setDaemon(true); // close syncs rest of the moves, flusher doesn't keep program running
+			return t;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Start journal of new game. Journal of earlier game is removed.
+	 * 
+	 * @param seed seed of the board
+	 * @param difficulty ordinal of difficulty
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param mines mine count of the board
+	 */
+	public void startGame(long seed, int difficulty, int columns, int rows, int mines) {
+		
+		this.seed = seed;
+		this.difficulty = difficulty;
+		this.columns = columns;
+		this.rows = rows;
+		this.mines = mines;
+		
+		if(failed) return;
+		
+		synchronized(lock) { // earlier game doesn't matter anymore, flusher empties the file before writing new header
+			
+			front.clear();
+			compacted = null;
+			truncate = 0;
+			this.writeHeader(front);
+		}
+		moves = 0;
+		ended = false;
+		this.request();
+	}
+	
+	/**
+	 * Continue journal of game that was restored from journal file.
+	 * 
+	 * @param game game that was read from journal
+	 */
+	public void continueGame(Game game) {
+		
+		seed = game.seed;
+		difficulty = game.difficulty;
+		columns = game.columns;
+		rows = game.rows;
+		mines = game.mines;
+		moves = game.moves.size();
+		ended = false;
+		
+		if(failed) return;
+		
+		synchronized(lock) { // remove partly written record, new records continue after last complete one
+			
+			front.clear();
+			compacted = null;
+			truncate = game.length;
+		}
+	}
+	
+	/**
+	 * Write mouse click on tile into journal.
+	 * 
+	 * @param tile index of clicked tile (row * columns + column)
+	 * @param button mouse button that was pressed
+	 * @param count how many coalesced presses click stands for
+	 * @param elapsed time since game started in milliseconds
+	 */
+	public void logMouse(int tile, int button, int count, int elapsed) {
+		
+		if(failed || ended) return;
+		
+		synchronized(lock) {
+			
+			this.ensure(17);
+			front.put((byte)'M').putInt(tile).putInt(button).putInt(count).putInt(elapsed);
+		}
+		moves++;
+	}
+	
+	/**
+	 * Write key press into journal.
+	 * 
+	 * @param key key that was pressed
+	 * @param elapsed time since game started in milliseconds
+	 */
+	public void logKey(char key, int elapsed) {
+		
+		if(failed || ended) return;
+		
+		synchronized(lock) {
+			
+			this.ensure(7);
+			front.put((byte)'K').putChar(key).putInt(elapsed);
+		}
+		moves++;
+	}
+	
+	/**
+	 * Mark current game ended and have it synced right away, ended game isn't restored.
+	 */
+	public void endGame() {
+		
+		if(failed || ended) return;
+		
+		synchronized(lock) {
+			
+			this.ensure(1);
+			front.put((byte)'E');
+		}
+		ended = true;
+		this.request();
+	}
+	
+	/**
+	 * Check if enough moves have been written that journal should be compacted.
+	 * 
+	 * @return should {@link #checkpoint(Board, int, boolean)} be called
+	 */
+	public boolean needsCheckpoint() {
+		
+		return !failed && !ended && moves >= CHECKPOINT_INTERVAL;
+	}
+	
+	/**
+	 * Compact journal into header and one checkpoint with current tiles of the board.
+	 * Tiles are copied here, flusher writes new journal next to the old one and moves it over the old one,
+	 * so crash during this leaves the old journal.
+	 * Moves before checkpoint can't be replayed anymore, so caller starts undo history again from checkpoint.
+	 * 
+	 * @param board current board
+	 * @param elapsed time since game started in milliseconds
+	 * @param practice has undo been used in the game
+	 */
+	public void checkpoint(Board board, int elapsed, boolean practice) {
+		
+		if(failed || ended) return;
+		
+		ByteBuffer data = ByteBuffer.allocate(25 + 10 + columns * rows); // header, checkpoint record and tiles
+		
+		this.writeHeader(data);
+		data.put((byte)'C').putInt(elapsed).put((byte)((board.isFirstClick() ? FIRST_CLICK : 0) | (practice ? PRACTICE : 0))).putInt(columns * rows);
+		
+		for(int y = 0; y < rows; y++) { // tiles row by row
+			for(int x = 0; x < columns; x++) {
+				
+				Tile t = board.getTile(x, y);
+				data.put((byte)(t.getState().ordinal() | (t.isMine() ? MINE : 0)));
+			}
+		}
+		data.flip();
+		
+		synchronized(lock) { // moves waiting in front are included in checkpoint
+			
+			front.clear();
+			compacted = data;
+		}
+		moves = 0;
+		this.request();
+	}
+	
+	/**
+	 * Write moves that have been made so far to disk and sync them, waits until they are synced.
+	 */
+	public void sync() {
+		
+		if(flusher == null) return;
+		
+		try {
+			
+			flusher.submit(this::flush).get();
+		
+		} catch(RejectedExecutionException e) { // journal has been closed
+		
+		} catch(InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+		
+		} catch(ExecutionException e) {
+			
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Stop flusher, sync rest of the moves and close journal.
+	 */
+	public void close() {
+		
+		if(flusher == null) return;
+		
+		flusher.shutdown(); // scheduled syncs stop, one that is running is waited for
+		
+		try {
+			
+			flusher.awaitTermination(5, TimeUnit.SECONDS);
+		
+		} catch(InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+		}
+		
+		this.flush(); // rest of the moves, flusher has stopped so this is the only writer
+		
+		synchronized(this) {
+			
+			try {
+				
+				if(channel != null) channel.close();
+			
+			} catch(IOException ioe) {
+				
+				ioe.printStackTrace();
+			}
+			channel = null;
+		}
+	}
+	
+	/**
+	 * Get how many times journal has been synced to disk.
+	 * 
+	 * @return amount of syncs
+	 */
+	public long getSyncs() {
+		
+		return syncs;
+	}
+	/**
+	 * Get time that flusher has spent writing and syncing journal, none of it is spent on game thread.
+	 * 
+	 * @return time in nanoseconds
+	 */
+	public long getSyncTime() {
+		
+		return syncTime;
+	}
+	
+	/**
+	 * Read game from journal file.
+	 * 
+	 * @param path journal file
+	 * 
+	 * @return game in journal, null if file doesn't exist or has no game
+	 * 
+	 * @throws IOException file couldn't be read
+	 */
+	public static Game read(Path path) throws IOException {
+		
+		if(!Files.exists(path)) return null;
+		
+		Game game = null;
+		
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			
+			while(true) { // read records until end of file (last record can be partly written)
+				
+				int type = in.read();
+				
+				if(type == 'G') {
+					
+					game = new Game();
+					game.seed = in.readLong();
+					game.difficulty = in.readInt();
+					game.columns = in.readInt();
+					game.rows = in.readInt();
+					game.mines = in.readInt();
+					game.length = 25; // header is always first record of journal
+				}
+				else if(game == null || type < 0) {
+					
+					break; // end of journal or journal without game
+				}
+				else if(type == 'C') {
+					
+					int elapsed = in.readInt();
+					int flags = in.readByte();
+					byte[] tiles = new byte[in.readInt()];
+					in.readFully(tiles);
+					
+					game.elapsed = elapsed;
+					game.firstClick = (flags & FIRST_CLICK) != 0;
+					game.practice = (flags & PRACTICE) != 0;
+					game.checkpoint = tiles;
+					game.moves.clear();
+					game.length += 10 + tiles.length;
+				}
+				else if(type == 'M') {
+					
+					int tile = in.readInt(), button = in.readInt(), count = in.readInt(), elapsed = in.readInt();
+					
+					InputEvent e = new InputEvent();
+					e.setMouse(0, 0, button, tile, System.nanoTime());
+					e.setCount(count);
+					game.moves.add(e);
+					game.elapsed = elapsed;
+					game.length += 17;
+				}
+				else if(type == 'K') {
+					
+					char key = in.readChar();
+					int elapsed = in.readInt();
+					
+					InputEvent e = new InputEvent();
+					e.setKey(key, 0, System.nanoTime());
+					game.moves.add(e);
+					game.elapsed = elapsed;
+					game.length += 7;
+				}
+				else if(type == 'E') {
+					
+					game.ended = true;
+					game.length += 1;
+				}
+				else {
+					
+					System.err.println("Unknown record in journal, rest of the journal is ignored");
+					break;
+				}
+			}
+		
+		} catch(EOFException eof) {
+			// last record was only partly written -> game is restored up to the record before it
+		}
+		
+		return game;
+	}
+	
+	private void writeHeader(ByteBuffer b) { // write header of current game
+		
+		b.put((byte)'G').putLong(seed).putInt(difficulty).putInt(columns).putInt(rows).putInt(mines);
+	}
+	
+	private void request() { // have flusher write and sync right away instead of waiting for next interval
+		
+		try {
+			
+			if(flusher != null) flusher.execute(this::flush);
+		
+		} catch(RejectedExecutionException e) { // journal has been closed
+		}
+	}
+	
+	private void ensure(int bytes) { // make room for record into front buffer, called with lock held
+		
+		if(front.remaining() < bytes) { // flusher hasn't kept up -> grow buffer instead of waiting for disk
+			
+			ByteBuffer bigger = ByteBuffer.allocateDirect(front.capacity() * 2);
+			front.flip();
+			bigger.put(front);
+			front = bigger;
+		}
+	}
+	
+	private synchronized void flush() { // take moves from game thread, write them and sync (flusher thread, or close after flusher has stopped)
+		
+		if(channel == null) return;
+		
+		ByteBuffer data;
+		ByteBuffer base;
+		long cut;
+		
+		synchronized(lock) { // game thread continues with empty buffer
+			
+			data = front;
+			front = back;
+			back = data;
+			base = compacted;
+			compacted = null;
+			cut = truncate;
+			truncate = -1;
+		}
+		
+		long start = System.nanoTime();
+		data.flip();
+		
+		try {
+			
+			if(base != null) { // checkpoint replaces whole journal, moves made after it follow it
+				
+				Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+				
+				try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					
+					while(base.hasRemaining()) out.write(base);
+					while(data.hasRemaining()) out.write(data);
+					out.force(false);
+				}
+				
+				channel.close();
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				channel = FileChannel.open(path, StandardOpenOption.WRITE);
+				channel.position(channel.size());
+			}
+			else if(cut >= 0 || data.hasRemaining()) { // nothing is synced when there are no new moves
+				
+				if(cut >= 0) {
+					
+					channel.truncate(cut);
+					channel.position(cut);
+				}
+				while(data.hasRemaining()) channel.write(data);
+				channel.force(false);
+			}
+			else return;
+			
+			syncs++;
+			syncTime += System.nanoTime() - start;
+		
+		} catch(IOException ioe) {
+			
+			this.fail(ioe);
+		
+		} finally {
+			
+			data.clear(); // empty buffer goes back to game thread on next flush
+		}
+	}
+	
+	private void fail(IOException ioe) { // stop journaling after error, game can still be played
+		
+		failed = true;
+		ioe.printStackTrace();
+		System.err.println("Couldn't write journal, current game can't be restored.");
+		
+		try {
+			
+			if(channel != null) channel.close();
+		
+		} catch(IOException e) {
+			
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+}
\ No newline at end of file
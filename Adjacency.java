@@ -0,0 +1,147 @@
+package minesweeper;
+
+/**
+ * Neighbours of every tile of a board, compiled from a {@link Topology} in compressed sparse row form.
+ * <p>
+ * Tiles are indexed like cells array of {@link Board}: row by row with one tile wide border.
+ * Every tile points to a row, and a row is a list of index offsets to neighbours of the tile.
+ * Tiles that have the same offsets share a row, so a rectangular board has only nine rows (inner tiles, edges and corners)
+ * and an arbitrary graph has one row for every tile. Neighbours that flood fill spreads to are first in every row.
+ * <p>
+ * Loops over neighbours look like this, with no checks for borders or topology:
+ * <pre>
+ * int r = adjacency.row[c];
+ * for(int i = adjacency.start[r]; i &lt; adjacency.start[r + 1]; i++) visit(c + adjacency.list[i]);
+ * </pre>
+ * On a rectangle every tile can use the row of inner tiles, because its offsets reach only border tiles from the edges.
+ * Loops that leave border tiles alone (they are never mines, never hidden and have no surround value) use {@link #rowOf(int)} instead,
+ * so they don't read the row of every tile from an array as big as the board.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Topology
+ */
+public final class Adjacency {
+	
+	final int[] row; // row of every tile, border tiles have empty row 0
+	final int[] start; // where offsets of every row start in list (rows + 1 values)
+	final int[] spread; // where offsets that flood fill spreads to end in every row
+	final int[] list; // offsets of all rows
+	final int shared; // row that every tile can use if neighbours can be border tiles, -1 if tiles need their own rows
+	
+	private final int columns; // board width in tiles
+	private final int rows; // board height in tiles
+	private final int maxDegree; // most neighbours that a tile has
+	
+	Adjacency(int columns, int rows, int[] row, int[] start, int[] spread, int[] list, int shared) {
+		
+		this.columns = columns;
+		this.rows = rows;
+		this.row = row;
+		this.start = start;
+		this.spread = spread;
+		this.list = list;
+		this.shared = shared;
+		
+		int max = 0;
+		for(int r = 0; r + 1 < start.length; r++) max = Math.max(max, start[r + 1] - start[r]);
+		this.maxDegree = max;
+	}
+	
+	/**
+	 * Get row of tile for loops where border tiles can be neighbours. Rectangle gives the same row for every tile without reading it.
+	 * 
+	 * @param c index of tile in cells array, not a border tile
+	 * @return row of offsets, it can reach border tiles
+	 */
+	int rowOf(int c) {
+		
+		return shared >= 0 ? shared : row[c];
+	}
+	/**
+	 * Get where neighbours of tile start in list of offsets.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return position of first offset
+	 */
+	public int getStart(int c) {
+		
+		return start[row[c]];
+	}
+	/**
+	 * Get where neighbours that flood fill spreads to end in list of offsets.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return position after last spreading offset
+	 */
+	public int getSpreadEnd(int c) {
+		
+		return spread[row[c]];
+	}
+	/**
+	 * Get where neighbours of tile end in list of offsets.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return position after last offset
+	 */
+	public int getEnd(int c) {
+		
+		return start[row[c] + 1];
+	}
+	/**
+	 * Get offset from list of offsets.
+	 * 
+	 * @param i position in list
+	 * @return index offset from tile to neighbour in cells array
+	 */
+	public int getOffset(int i) {
+		
+		return list[i];
+	}
+	/**
+	 * Get how many neighbours tile has.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return amount of neighbours
+	 */
+	public int getDegree(int c) {
+		
+		return start[row[c] + 1] - start[row[c]];
+	}
+	/**
+	 * Get most neighbours that any tile has.
+	 * 
+	 * @return largest amount of neighbours
+	 */
+	public int getMaxDegree() {
+		
+		return maxDegree;
+	}
+	/**
+	 * Get how many different rows of offsets tiles use.
+	 * 
+	 * @return amount of rows, including empty row of border tiles
+	 */
+	public int getRowCount() {
+		
+		return start.length - 1;
+	}
+	/**
+	 * Get board width that adjacency was compiled for.
+	 * 
+	 * @return columns of board
+	 */
+	public int getColumns() {
+		
+		return columns;
+	}
+	/**
+	 * Get board height that adjacency was compiled for.
+	 * 
+	 * @return rows of board
+	 */
+	public int getRows() {
+		
+		return rows;
+	}
+}
\ No newline at end of file
@@ -3,8 +3,9 @@ package minesweeper;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Stream;
 
 /**
  * Game board object that contains all the tiles for current game.
@@ -15,10 +16,31 @@ public class Board {
 	
 	private int mines; // mine count in game board
 	private Tile[][] tiles; // tiles array containing all tiles in game board
+	private Tile[] cells; // same tiles row by row with one tile wide border of sentinel tiles around the board
+	private int stride; // width of bordered board in tiles (columns + 2)
+	private Topology topology = Topology.RECTANGLE; // which tiles are neighbours
+	private Adjacency adjacency; // neighbours of every tile compiled from topology for board size
+	private Tile sentinel; // border tile: never a mine, never hidden and has no surround value
+	private int[] queue; // reusable queue for revealing empty tiles
+	private Openings openings; // openings found when board was generated, null if they have to be labelled again
+	private BoardStats stats; // statistics of the board, null if they have to be counted again
+	private boolean lazySurround = false; // count surround values only when they are needed
+	private BitSet computed; // tiles whose surround value has been counted, only in lazy mode
+	private Frontier frontier = new Frontier(); // revealed numbered tiles next to hidden tiles
+	private long hash = 0; // zobrist hash of what player sees (revealed values and flags), hidden tiles add nothing
+	private BoardHistory history; // undo/redo history of tile states, null if history isn't kept
+	private ArrayList<TileListener> listeners = new ArrayList<TileListener>(); // told about every change of tile state
 	private Point boardSize; // boardSize board width and height in tiles (columns, rows)
 	private Point resolution; // resolution tile width and height in pixels
 	private int[] padding; // padding around the board in pixels
 	
+	private boolean safeFirstClick = true; // move mines away from first clicked tile
+	private boolean safeOpening = false; // move mines also away from tiles surrounding first clicked tile
+	private boolean firstClick = true; // next revealing click is first click of the game
+	
+	private long seed; // seed of current mine locations, same seed gives same board
+	private Random random = new Random(); // random numbers for mine locations
+	
 	/**
 	 * Game board object that contains all the tiles for current game.
 	 * 
@@ -57,39 +79,264 @@ public class Board {
 	 */
 	public void randomize(int tileWidth, int tileHeight) {
 		
+		this.randomize(tileWidth, tileHeight, ThreadLocalRandom.current().nextLong()); // new random seed for every game
+	}
+	
+	/**
+	 * Creates board full of tiles and randomizes mine locations in the given board using given seed.
+	 * Same seed and board size always give same mine locations (also for mines moved by first click).
+	 * 
+	 * @param tileWidth width of the created tiles in pixels
+	 * @param tileHeight height of the created tiles in pixels
+	 * @param seed seed for random mine locations
+	 * 
+	 * @see Tile
+	 */
+	public void randomize(int tileWidth, int tileHeight, long seed) {
+		
+		Point size = this.getBoardSize(); // get board width and height
+		
+		this.seed = seed;
+		random.setSeed(seed);
+		
+		this.createTiles(tileWidth, tileHeight);
+		
+		// RANDOMIZE AND PLACE MINES
+		int placed = 0; // how many mines have been placed
+		
+		while(placed < mines) { // place mines until all mines are in the board
+			
+			int pos = random.nextInt(size.x * size.y); // randomize location of mine
+			
+			if(!tiles[pos / size.x][pos % size.x].isMine()) { // check if mine is located at that position already -> true: skip, false: place the mine
+				
+				tiles[pos / size.x][pos % size.x].setMine(true); // set tile as mine at (x,y) position
+				placed++;
+			}
+		}
+		
+		this.newGame();
+	}
+	
+	/**
+	 * Creates board full of tiles and places mines to given locations. Board size and mine count are changed to match the layout.
+	 * Surround values have to be set after this like after {@link #randomize(int, int)}.
+	 * 
+	 * @param tileWidth width of the created tiles in pixels
+	 * @param tileHeight height of the created tiles in pixels
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param mineBits mine locations as bits, bit i (bit i % 64 of long i / 64) is tile i counted row by row
+	 * @param seed seed for mines moved by first click
+	 * 
+	 * @see BoardFile
+	 */
+	public void load(int tileWidth, int tileHeight, int columns, int rows, long[] mineBits, long seed) {
+		
+		if(columns != boardSize.x || rows != boardSize.y) boardSize = new Point(columns, rows); // layout decides board size
+		
+		this.seed = seed;
+		random.setSeed(seed);
+		
+		this.createTiles(tileWidth, tileHeight);
+		mines = 0;
+		
+		for(int w = 0; w < mineBits.length; w++) { // go through set bits only
+			
+			long bits = mineBits[w];
+			
+			while(bits != 0) {
+				
+				int pos = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1; // clear lowest set bit
+				
+				if(pos >= columns * rows) break; // unused bits of last long
+				
+				tiles[pos / columns][pos % columns].setMine(true);
+				mines++;
+			}
+		}
+		
+		this.newGame();
+	}
+	
+	/**
+	 * Get mine locations of the board as bits, same format as {@link #load(int, int, int, int, long[], long)} takes.
+	 * 
+	 * @param out array where bits are written, new one is created if it is null or too small
+	 * @return array containing mine locations
+	 */
+	public long[] getMineBits(long[] out) {
+		
+		int count = boardSize.x * boardSize.y;
+		int words = (count + 63) >>> 6;
+		
+		if(out == null || out.length < words) out = new long[words];
+		else Arrays.fill(out, 0, words, 0L);
+		
+		for(int pos = 0; pos < count; pos++) {
+			
+			if(tiles[pos / boardSize.x][pos % boardSize.x].isMine()) out[pos >>> 6] |= 1L << pos; // shift uses only lowest 6 bits
+		}
+		return out;
+	}
+	
+	private void createTiles(int tileWidth, int tileHeight) { // create hidden tiles without mines and bordered cells array
+		
 		Point size = this.getBoardSize(); // get board width and height
 		
 		// INITIALIZE BOARD
 		Tile[][] tileTemp = new Tile[size.y][size.x]; // create array of tiles based on board size
+		Tile[] cellTemp = new Tile[(size.x + 2) * (size.y + 2)]; // same tiles with border of sentinel tiles
+		
+		Tile border = new Tile(new Point(-1, -1), new Point(tileWidth,tileHeight)); // all border tiles are the same sentinel tile
+		Arrays.fill(cellTemp, border); // state of sentinel stays NONE so it is never revealed or flagged
 		
 		for(int y = 0; y < size.y; y++) { // Initialise tiles array
 			for(int x = 0; x < size.x; x++) {
 				
-				Tile temp = new Tile(new Point(x, y), new Point(tileWidth,tileHeight)); // create blank tile in position (x,y) with resolution (tileWidth,tileHeight)
+				int c = (y + 1) * (size.x + 2) + x + 1; // index of tile in cells array
+				
+				// create blank tile in position (x,y) with resolution (tileWidth,tileHeight), lazy tile counts its surround value when asked
+				Tile temp = lazySurround ? new LazyTile(new Point(x, y), new Point(tileWidth,tileHeight), this, c) : new Tile(new Point(x, y), new Point(tileWidth,tileHeight));
 				
 				temp.setState(State.HIDDEN); // initialise tile as hidden
-				tileTemp[y][x] = temp;			
+				tileTemp[y][x] = temp;
+				cellTemp[c] = temp;
 			}
 		}
-		// RANDOMIZE MINE LOCATIONS
-		ArrayList<Integer> mineLocations = new ArrayList<Integer>(); // Create empty list where mine locations will be stored
 		
-		while(mineLocations.size() < mines) { // fill the list to contain all mine locations
+		computed = lazySurround ? new BitSet(cellTemp.length) : null;
+		
+		tiles = tileTemp; // save tiles into boards tile array
+		cells = cellTemp;
+		sentinel = border;
+		stride = size.x + 2;
+		adjacency = topology.compile(size.x, size.y); // same size -> same adjacency is reused
+		if(queue == null || queue.length < size.x * size.y) queue = new int[size.x * size.y]; // every tile fits into queue once
+	}
+	
+	private void newGame() { // reset game state after mines have been placed
+		
+		openings = null; // surround values aren't set yet
+		stats = null;
+		hash = 0; // all tiles are hidden
+		frontier.reset(cells, sentinel, adjacency); // no tiles are revealed -> empty frontier
+		if(history != null) history.reset(cells); // new board -> history starts from hidden tiles
+		firstClick = true; // new game -> next click is first click
+	}
+	
+	/**
+	 * Make first click of the game safe by moving mines away from clicked tile (and its surrounding tiles if safe opening is set).
+	 * Moved mines are placed to random tiles without mines and surround values are fixed only around the old and new location,
+	 * so first click costs the same as any other click no matter how big the board is.
+	 * Does nothing if first click has already happened.
+	 * 
+	 * @param x x-coordinate of clicked Tile
+	 * @param y y-coordinate of clicked Tile
+	 * 
+	 * @see #setSafeFirstClick(boolean)
+	 * @see #setSafeOpening(boolean)
+	 */
+	public void protectFirstClick(int x, int y) {
+		
+		if(!firstClick) return; // only first click of the game is protected
+		firstClick = false;
+		
+		if(!safeFirstClick) return;
+		
+		Point size = this.getBoardSize();
+		int c = this.index(x, y);
+		int r = adjacency.row[c];
+		
+		// protected area: clicked tile and its neighbours, sorted so mines are moved row by row
+		int[] area = new int[safeOpening ? adjacency.start[r + 1] - adjacency.start[r] + 1 : 1];
+		area[0] = c;
+		for(int i = 1; i < area.length; i++) area[i] = c + adjacency.list[adjacency.start[r] + i - 1];
+		Arrays.sort(area);
+		
+		if(mines > size.x * size.y - area.length) { // not enough free tiles outside protected area
+			
+			System.err.println("Too many mines to make first click safe");
+			return;
+		}
+		
+		for(int from : area) { // loop protected area and move mines out of it
+			
+			if(!cells[from].isMine()) continue;
 			
-			int pos = ThreadLocalRandom.current().nextInt(0, size.x * size.y - 1); // randomize location of mine
+			int pos; // new location of mine
 			
-			if(!mineLocations.contains(pos)) { // check if mine is located at that position already -> true: skip, false: add the position
+			do { // randomize location until tile without mine and outside of protected area is found
 				
-				mineLocations.add(pos);
-			}
+				pos = random.nextInt(size.x * size.y);
+				
+			} while(tiles[pos / size.x][pos % size.x].isMine() || Arrays.binarySearch(area, this.index(pos % size.x, pos / size.x)) >= 0);
+			
+			this.moveMine(from % stride - 1, from / stride - 1, pos % size.x, pos / size.x);
+		}
+	}
+	
+	/**
+	 * Move mine to another tile and fix surround values of the tiles surrounding old and new location.
+	 * 
+	 * @param fromX x-coordinate of Tile that contains mine
+	 * @param fromY y-coordinate of Tile that contains mine
+	 * @param toX x-coordinate of Tile where mine is moved
+	 * @param toY y-coordinate of Tile where mine is moved
+	 * 
+	 * @see Tile
+	 */
+	public void moveMine(int fromX, int fromY, int toX, int toY) {
+		
+		int from = this.index(fromX, fromY);
+		int to = this.index(toX, toY);
+		
+		openings = null; // openings change when mine is moved, they are labelled again when needed
+		stats = null;
+		
+		cells[from].setMine(false); // remove mine from old location
+		this.addSurround(from, -1); // surrounding tiles have one mine less
+		cells[from].setSurround(this.findSurrounding(fromX, fromY)); // old location is now a normal tile
+		
+		cells[to].setMine(true); // place mine at new location
+		cells[to].setSurround(-1); // mines don't have surround value
+		
+		if(computed != null) { // both tiles now have counted values
+			
+			computed.set(from);
+			computed.set(to);
 		}
-		// PLACE MINES
-		for(int index : mineLocations) { // set tiles at mine locations to have mines
+		this.addSurround(to, 1); // surrounding tiles have one mine more
+	}
+	
+	/**
+	 * Add given value to surround value of all non mine tiles surrounding given position.
+	 * 
+	 * @param c index of Tile in cells array
+	 * @param value value added to surround values
+	 */
+	private void addSurround(int c, int value) {
+		
+		int r = adjacency.row[c];
+		
+		for(int i = adjacency.start[r]; i < adjacency.start[r + 1]; i++) { // loop surrounding tiles
 			
-			tileTemp[(int)(index / size.x)][index % size.x].setMine(true); // set tile as mine at (x,y) position
+			Tile t = cells[c + adjacency.list[i]];
+			if(!t.isMine() && t.peekSurround() != Tile.NOT_COMPUTED) t.setSurround(t.getSurround() + value); // values that aren't counted yet will be counted with new mines
 		}
+	}
+	
+	/**
+	 * Get index of tile in cells array, that has border of sentinel tiles around the board.
+	 * 
+	 * @param x x-coordinate of Tile
+	 * @param y y-coordinate of Tile
+	 * @return index of tile in cells array
+	 */
+	private int index(int x, int y) {
 		
-		tiles = tileTemp; // save tiles into boards tile array
+		return (y + 1) * stride + x + 1;
 	}
 	
 	/**
@@ -99,9 +346,15 @@ public class Board {
 	 */
 	public boolean gameWin() {
 		
-		Tile[] temp = Stream.of(tiles).flatMap(Stream::of).toArray(Tile[]::new); // map 2D array of tiles to 1D array
-		return Arrays.stream(temp).noneMatch(t -> t.getState() == State.HIDDEN) && // check that none of the tiles remain hidden
-			   Arrays.stream(temp).noneMatch(t -> t.getState() == State.FLAGGED && !t.isMine()); // check that player hasn't cheated by flagging all tiles (even those that don't contain mines)
+		for(Tile[] outer : tiles) { // loop all tiles without creating streams, this is called after every click
+			for(Tile t : outer) {
+				
+				if(t.getState() == State.HIDDEN) return false; // check that none of the tiles remain hidden
+				if(t.getState() == State.FLAGGED && !t.isMine()) return false; // check that player hasn't cheated by flagging all tiles (even those that don't contain mines)
+			}
+		}
+		
+		return true;
 	}
 	
 	/** 
@@ -113,17 +366,15 @@ public class Board {
 	 * **/
 	public int findSurrounding(int x, int y) {
 		
+		int c = this.index(x, y); // index of tile in cells array
 		int count = 0; // holds mine count
+		int r = adjacency.rowOf(c); // border tiles are never mines
+		int[] list = adjacency.list;
+		int end = adjacency.start[r + 1];
 		
-		for(int i = -1; i <= 1; i++) { // loop surrounding tiles to check if they are mines
-			for(int j = -1; j <= 1; j++) {
-				
-				// checks if tile isn't outside of the board and it isn't the center tile
-				if(!(i==0 && j==0) && (y+i >= 0 && y+i < this.getBoardSize().y) && (x+j >= 0 && x+j < this.getBoardSize().x)) {
-					
-					if(tiles[y+i][x+j].isMine()) count++; // increase mine count if tile was a mine
-				}
-			}
+		for(int i = adjacency.start[r]; i < end; i++) { // loop surrounding tiles to check if they are mines
+			
+			count += cells[c + list[i]].isMine() ? 1 : 0; // increase mine count if tile was a mine
 		}
 		
 		return count;
@@ -140,56 +391,63 @@ public class Board {
 	 * **/
 	public void revealEmpty(int x, int y) {
 		
-		tiles[y][x].setState(State.REVEALED); // set initial Tile as Revealed
+		this.revealEmpty(this.index(x, y));
+	}
+	
+	private void revealEmpty(int c) { // reveal empty tiles starting from index in cells array
+		
+		if(openings != null && openings.getRegion(c) >= 0 && !openings.isTouched(openings.getRegion(c))) { // untouched opening -> reveal it from its list of tiles
+			
+			int r = openings.getRegion(c);
+			
+			for(int i = openings.getStart(r); i < openings.getEnd(r); i++) {
+				
+				if(cells[openings.getTile(i)].getState() == State.HIDDEN) this.changeState(openings.getTile(i), State.REVEALED); // flagged tiles stay flagged
+			}
+			// list already revealed clicked tile if it was hidden, flagged one is revealed here (no second change for listeners)
+			if(cells[c].getState() != State.REVEALED) this.changeState(c, State.REVEALED);
+			return;
+		}
+		
+		this.changeState(c, State.REVEALED); // set initial Tile as Revealed
 		
-		ArrayList<Tile> queue = new ArrayList<Tile>(); // create queue for tracking what Tiles have been visited
-		queue.add(tiles[y][x]);
+		int size = 0; // how many tiles are in queue
+		queue[size++] = c; // queue tracks what Tiles have been visited
 		
-		while(!queue.isEmpty()) { // loop until no connected empty Tiles remain
+		Adjacency a = adjacency; // changeState can't be inlined everywhere, so arrays are read once instead of after every call
+		int[] list = a.list;
+		
+		while(size > 0) { // loop until no connected empty Tiles remain
 			
-			Tile temp = queue.get(0);
-			queue.remove(0); // remove this Tile from queue (it is now "visited")
+			int temp = queue[--size]; // remove this Tile from queue (it is now "visited")
+			int r = a.rowOf(temp); // border tiles are never hidden
+			int first = a.start[r];
+			int spread = a.spread[r];
+			int end = a.start[r + 1];
 			
-			for(int i = -1; i <= 1; i++) { // loop all surrounding tiles
-				for(int j = -1; j <= 1; j++) {
-					
-					// check for vertical neighbours
-					
-					// checks if tile isn't outside of the board and it isn't the center tile
-					if(!(i==0) && (temp.getPosition().y+i >= 0 && temp.getPosition().y+i < this.getBoardSize().y)) {
-						
-						// if tile is hidden and is empty -> reveal it and add it into queue
-						if(tiles[temp.getPosition().y+i][temp.getPosition().x].getSurround() == 0 && tiles[temp.getPosition().y+i][temp.getPosition().x].getState() == State.HIDDEN) {
-							
-							tiles[temp.getPosition().y+i][temp.getPosition().x].setState(State.REVEALED);
-							queue.add(tiles[temp.getPosition().y+i][temp.getPosition().x]);
-						}
-					}
-					// check for horizontal neighbours
+			for(int i = first; i < spread; i++) { // check for neighbours that flood fill spreads to
+				
+				int n = temp + list[i];
+				Tile t = cells[n];
+				
+				// if tile is hidden and is empty -> reveal it and add it into queue
+				if(t.getSurround() == 0 && t.getState() == State.HIDDEN) {
 					
-					// checks if tile isn't outside of the board and it isn't the center tile
-					if(!(j==0) && (temp.getPosition().x+j >= 0 && temp.getPosition().x+j < this.getBoardSize().x)) {
-						
-						// if tile is hidden and is empty -> reveal it and add it into queue
-						if(tiles[temp.getPosition().y][temp.getPosition().x+j].getSurround() == 0 && tiles[temp.getPosition().y][temp.getPosition().x+j].getState() == State.HIDDEN) {
-							
-							tiles[temp.getPosition().y][temp.getPosition().x+j].setState(State.REVEALED);
-							queue.add(tiles[temp.getPosition().y][temp.getPosition().x+j]);
-						}
-					}
-					// reveal edge Tiles (non empty ones)
+					this.changeState(n, State.REVEALED);
+					queue[size++] = n;
+				}
+			}
+			for(int i = first; i < end; i++) { // reveal edge Tiles (non empty ones)
+				
+				int n = temp + list[i];
+				Tile t = cells[n];
+				
+				// checks if tile is hidden and isn't empty -> reveal it
+				if(t.getSurround() > 0 && t.getState() == State.HIDDEN) {
 					
-					// checks if tile isn't outside of the board and it isn't the center tile
-					if(!(i==0 && j==0) && (temp.getPosition().y+i >= 0 && temp.getPosition().y+i < this.getBoardSize().y) && (temp.getPosition().x+j >= 0 && temp.getPosition().x+j < this.getBoardSize().x)) {
-						
-						// checks if tile is hidden and isn't empty -> reveal it
-						if(tiles[temp.getPosition().y+i][temp.getPosition().x+j].getSurround() > 0 && tiles[temp.getPosition().y+i][temp.getPosition().x+j].getState() == State.HIDDEN) {
-							
-							tiles[temp.getPosition().y+i][temp.getPosition().x+j].setState(State.REVEALED);
-						}
-					}					
-				}		
-			}	
+					this.changeState(n, State.REVEALED);
+				}
+			}
 		}
 	}
 	
@@ -207,33 +465,30 @@ public class Board {
 	 * **/
 	public boolean revealSurround(int x, int y) {
 		
+		int c = this.index(x, y); // index of tile in cells array
 		boolean mines = false; // does tile have non flagged mines around it?
+		int r = adjacency.rowOf(c); // border tiles are never mines or hidden and have no surround value
+		int[] list = adjacency.list;
+		int first = adjacency.start[r];
+		int end = adjacency.start[r + 1];
 		
-		for(int i = -1; i <= 1; i++) { // check if there is any surrounding tiles that were mines and weren't flagged
-			for(int j = -1; j <= 1; j++) {
-				
-				// checks if tile isn't outside of the board and it isn't the center tile
-				if(!(i==0 && j==0) && (y+i >= 0 && y+i < this.getBoardSize().y) && (x+j >= 0 && x+j < this.getBoardSize().x)) {
-					
-					// check if tile is mine and not flagged -> set mines to true
-					if(tiles[y+i][x+j].isMine() && tiles[y+i][x+j].getState() != State.FLAGGED) mines = true;
-				}
-			}
+		for(int i = first; i < end; i++) { // check if there is any surrounding tiles that were mines and weren't flagged
+			
+			// check if tile is mine and not flagged -> set mines to true
+			Tile t = cells[c + list[i]];
+			if(t.isMine() && t.getState() != State.FLAGGED) mines = true;
 		}
 		
 		if(!mines) { // if no unflagged mines were found -> reveal all surrounding tiles
 			
-			for(int i = -1; i <= 1; i++) {
-				for(int j = -1; j <= 1; j++) {
-					
-					// checks if tile isn't outside of the board and it isn't the center tile
-					if(!(i==0 && j==0) && (y+i >= 0 && y+i < this.getBoardSize().y) && (x+j >= 0 && x+j < this.getBoardSize().x)) {
-						
-						// reveal tile if it isn't flagged
-						if(tiles[y+i][x+j].getState() != State.FLAGGED) this.setTileState(x+j, y+i, State.REVEALED);
-						if(tiles[y+i][x+j].getSurround() == 0) this.revealEmpty(x+j, y+i);
-					}
-				}
+			for(int i = first; i < end; i++) {
+				
+				int n = c + list[i];
+				Tile t = cells[n];
+				
+				// reveal tile if it is hidden (flagged tiles are left as they are)
+				if(t.getState() == State.HIDDEN) this.changeState(n, State.REVEALED);
+				if(t.getSurround() == 0) this.revealEmpty(n);
 			}
 			
 			return true; // Return true to indicate that no gameover happened
@@ -256,32 +511,26 @@ public class Board {
 	 * **/
 	public void flagSurround(int x, int y) {
 		
-		int mines = this.getTile(x, y).getSurround(); // how many tiles surround tile at given position
+		int c = this.index(x, y); // index of tile in cells array
+		int mines = cells[c].getSurround(); // how many tiles surround tile at given position
 		int count = 0;
+		int r = adjacency.rowOf(c); // border tiles are never hidden or flagged
+		int[] list = adjacency.list;
+		int first = adjacency.start[r];
+		int end = adjacency.start[r + 1];
 		
-		for(int i = -1; i <= 1; i++) { // counts how many hidden tiles and flagged tiles surround given tile
-			for(int j = -1; j <= 1; j++) {
-				
-				// checks if tile isn't outside of the board and it isn't the center tile
-				if(!(i==0 && j==0) && (y+i >= 0 && y+i < this.getBoardSize().y) && (x+j >= 0 && x+j < this.getBoardSize().x)) {
-					
-					if(tiles[y+i][x+j].getState().equals(State.HIDDEN) || tiles[y+i][x+j].getState().equals(State.FLAGGED)) count++;
-				}
-			}
+		for(int i = first; i < end; i++) { // counts how many hidden tiles and flagged tiles surround given tile
+			
+			State s = cells[c + list[i]].getState();
+			count += (s == State.HIDDEN || s == State.FLAGGED) ? 1 : 0;
 		}
 		if(count == mines) { // flag tiles only if count of hidden tiles + flagged tiles is equal to mine amount
 			
-			for(int i = -1; i <= 1; i++) { // loop all surrounding tiles
-				for(int j = -1; j <= 1; j++) {
+			for(int i = first; i < end; i++) { // loop all surrounding tiles
+				
+				if(cells[c + list[i]].getState() == State.HIDDEN) { // flag tile if it is hidden (already flagged tiles stay flagged)
 					
-					// checks if tile isn't outside of the board and it isn't the center tile
-					if(!(i==0 && j==0) && (y+i >= 0 && y+i < this.getBoardSize().y) && (x+j >= 0 && x+j < this.getBoardSize().x)) {
-						
-						if(!tiles[y+i][x+j].getState().equals(State.REVEALED)) { // flag tile if it isn't revealed
-							
-							this.setTileState(x+j, y+i, State.FLAGGED);
-						}
-					}
+					this.changeState(c + list[i], State.FLAGGED);
 				}
 			}
 		}	
@@ -293,6 +542,15 @@ public class Board {
 	 */
 	public void setSurroundAll() {
 		
+		if(computed != null) { // lazy tiles: values are counted when they are asked for, forget values that have been counted
+			
+			for(int c = computed.nextSetBit(0); c >= 0; c = computed.nextSetBit(c + 1)) cells[c].setSurround(Tile.NOT_COMPUTED);
+			computed.clear();
+			openings = null; // openings are labelled only if they are asked for
+			stats = null;
+			return;
+		}
+		
 		for(Tile[] outer : tiles) { // loop all elements in tiles
 			for(Tile inner : outer) {
 				
@@ -302,6 +560,9 @@ public class Board {
 				}
 			}
 		}
+		
+		openings = Openings.label(cells, stride, adjacency); // find openings so they can be revealed without searching
+		stats = null;
 	}
 	/**
 	 * Normalize mouse position to match tile positions.
@@ -318,6 +579,20 @@ public class Board {
 		tempY = (int)((y - padding[0])/ this.resolution.y);
 		return new Point(tempX, tempY);
 	}
+	/**
+	 * Normalize mouse position to match tile positions, result is written into given point so nothing is allocated.
+	 * 
+	 * @param x mouse x-coordinate
+	 * @param y mouse y-coordinate
+	 * @param out point where tile location in tiles array is written
+	 * @return given point
+	 */
+	public Point normalizePosition(int x, int y, Point out) {
+		
+		out.x = (x - padding[2]) / this.resolution.x;
+		out.y = (y - padding[0]) / this.resolution.y;
+		return out;
+	}
 	
 	/**
 	 * Get tile from tiles array at given position.
@@ -347,7 +622,370 @@ public class Board {
 	 */
 	public void setTileState(int x, int y, State state) {
 		
-		tiles[y][x].setState(state);
+		this.changeState(this.index(x, y), state);
+	}
+	/**
+	 * Set state of tile at given index in cells array. All changes of tile states go through here,
+	 * so that openings and history know what has changed.
+	 * 
+	 * @param c index of tile in cells array
+	 * @param state state of tile
+	 */
+	void changeState(int c, State state) {
+		
+		State old = cells[c].getState();
+		
+		hash ^= zobrist(c, this.visible(c)); // remove old look of tile from hash
+		cells[c].setState(state);
+		hash ^= zobrist(c, this.visible(c)); // add new look of tile into hash
+		
+		if(openings != null) openings.touch(c); // opening of empty tile can't be revealed from its list anymore
+		if(history != null) history.write(c); // chunk of tile is copied on next commit
+		frontier.changed(c, old, state); // tile and its neighbours can join or leave frontier
+		
+		for(int i = 0; i < listeners.size(); i++) { // index loop, so changes don't create iterators
+			listeners.get(i).tileChanged(c % stride - 1, c / stride - 1, old, state);
+		}
+	}
+	/**
+	 * Get what player sees of tile as a number: 0 hidden, 1 flagged, 2 revealed mine, 3-11 revealed surround value 0-8.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return look of tile
+	 */
+	int visible(int c) {
+		
+		Tile t = cells[c];
+		
+		switch(t.getState()) {
+			case FLAGGED:  return 1;
+			case REVEALED: return t.isMine() ? 2 : 3 + t.getSurround();
+			default:       return 0;
+		}
+	}
+	/**
+	 * Get zobrist key of tile index and look. Keys are mixed from index and look instead of stored in a table,
+	 * so huge boards don't need a table of keys and same position always has same key.
+	 * 
+	 * @param c index of tile (or offset between tiles)
+	 * @param look look of tile, see {@link #visible(int)}
+	 * @return 64-bit key, 0 for hidden tile
+	 */
+	static long zobrist(long c, int look) {
+		
+		if(look == 0) return 0; // hidden tiles don't change hash
+		
+		long z = c * 0x9E3779B97F4A7C15L + look * 0xD1B54A32D192ED03L; // splitmix64 finalizer mixes index and look
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	/**
+	 * Get tile at given index in cells array (border tiles are sentinel tiles).
+	 * 
+	 * @param c index of tile in cells array
+	 * @return tile at index
+	 */
+	Tile getCell(int c) {
+		
+		return cells[c];
+	}
+	/**
+	 * Get width of bordered board in tiles, index of tile (x, y) in cells array is (y + 1) * stride + x + 1.
+	 * 
+	 * @return width of cells array rows
+	 */
+	int getStride() {
+		
+		return stride;
+	}
+	/**
+	 * Get neighbours of every tile, compiled from topology of the board.
+	 * 
+	 * @return adjacency of the board
+	 * 
+	 * @see Adjacency
+	 */
+	public Adjacency getAdjacency() {
+		
+		return adjacency;
+	}
+	/**
+	 * Get topology of the board.
+	 * 
+	 * @return which tiles are neighbours
+	 */
+	public Topology getTopology() {
+		
+		return topology;
+	}
+	/**
+	 * Set topology of the board. Used when tiles are created next time, so call it before {@link #randomize(int, int)}
+	 * or {@link #load(int, int, int, int, long[], long)}.
+	 * 
+	 * @param topology which tiles are neighbours
+	 * 
+	 * @see Topology
+	 */
+	public void setTopology(Topology topology) {
+		
+		this.topology = topology;
+	}
+	/**
+	 * Get frontier of the board: revealed numbered tiles that still have hidden tiles around them.
+	 * Frontier is kept up to date on every change, so solver work scales with frontier instead of board size.
+	 * 
+	 * @return frontier of the board
+	 * 
+	 * @see Frontier
+	 */
+	public Frontier getFrontier() {
+		
+		return frontier;
+	}
+	/**
+	 * Get zobrist hash of what player sees of the whole board. Hash is updated on every change of tile state,
+	 * so equal hashes mean (almost certainly) equal revealed values and flags, also after undo and replay.
+	 * 
+	 * @return 64-bit hash of visible board
+	 */
+	public long getHash() {
+		
+		return hash;
+	}
+	/**
+	 * Get hash of what player sees of given tiles, relative to first tile of the area.
+	 * Same situation in different place of the board gets same hash, so solver results can be reused.
+	 * 
+	 * @param area indexes of tiles in cells array
+	 * @param count how many indexes of area are used
+	 * @return 64-bit hash of area
+	 */
+	public long hashArea(int[] area, int count) {
+		
+		int origin = Integer.MAX_VALUE;
+		for(int i = 0; i < count; i++) origin = Math.min(origin, area[i]);
+		
+		long h = count; // different sized areas differ even if all their tiles are hidden
+		
+		for(int i = 0; i < count; i++) {
+			
+			int look = this.visible(area[i]);
+			h ^= zobrist(area[i] - origin, look == 0 ? 12 : look); // hidden tiles are part of area too
+		}
+		return h;
+	}
+	/**
+	 * Add listener that is told about every change of tile state. New boards (randomize, load) don't call listeners.
+	 * 
+	 * @param l listener
+	 */
+	public void addTileListener(TileListener l) {
+		
+		listeners.add(l);
+	}
+	/**
+	 * Remove listener of tile state changes.
+	 * 
+	 * @param l listener
+	 */
+	public void removeTileListener(TileListener l) {
+		
+		listeners.remove(l);
+	}
+	/**
+	 * Start keeping undo/redo history of tile states, history starts from current states.
+	 * 
+	 * @param budget how many bytes history can use before oldest versions are removed
+	 * 
+	 * @see BoardHistory
+	 */
+	public void setHistoryBudget(long budget) {
+		
+		if(history == null) {
+			
+			history = new BoardHistory(budget);
+			if(cells != null) history.reset(cells);
+		}
+		else history.setBudget(budget);
+	}
+	/**
+	 * Save tile changes made after last commit as new version in history.
+	 * 
+	 * @return was new version saved, false if nothing had changed or history isn't kept
+	 */
+	public boolean commitHistory() {
+		
+		return history != null && history.commit();
+	}
+	/**
+	 * Start undo/redo history again from current tile states, earlier versions can't be returned to anymore.
+	 * 
+	 * @see BoardHistory#reset(Tile[])
+	 */
+	public void resetHistory() {
+		
+		if(history != null) history.reset(cells);
+	}
+	/**
+	 * Return tiles to previous version in history.
+	 * 
+	 * @return was there a version to return to
+	 */
+	public boolean undo() {
+		
+		return history != null && history.undo(this);
+	}
+	/**
+	 * Return tiles to version that was undone.
+	 * 
+	 * @return was there a version to return to
+	 */
+	public boolean redo() {
+		
+		return history != null && history.redo(this);
+	}
+	/**
+	 * Save current tile states with given name.
+	 * 
+	 * @param name name of snapshot
+	 */
+	public void saveSnapshot(String name) {
+		
+		if(history != null) history.saveSnapshot(name);
+	}
+	/**
+	 * Return tiles to named snapshot, returning can be undone.
+	 * 
+	 * @param name name of snapshot
+	 * @return was snapshot found
+	 */
+	public boolean loadSnapshot(String name) {
+		
+		return history != null && history.loadSnapshot(this, name);
+	}
+	/**
+	 * Get undo/redo history of the board.
+	 * 
+	 * @return history, null if history isn't kept
+	 */
+	public BoardHistory getHistory() {
+		
+		return history;
+	}
+	/**
+	 * Get openings of the board (areas that one click on an empty tile reveals).
+	 * Openings are labelled again if mines have moved after board was generated.
+	 * 
+	 * @return openings of the board
+	 * 
+	 * @see Openings
+	 */
+	public Openings getOpenings() {
+		
+		if(openings == null) {
+			
+			if(computed != null) this.computeAll(); // labelling needs all surround values
+			openings = Openings.label(cells, stride, adjacency);
+		}
+		return openings;
+	}
+	/**
+	 * Count surround value of tile, used by {@link LazyTile} when its value is asked for the first time.
+	 * Renderers ask values from parallel bands, so this can be called by many threads at the same time:
+	 * mines don't move while board is drawn, so every thread counts the same value, and only marking the tile counted is locked.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return amount of mines surrounding the tile, -1 if tile is a mine
+	 */
+	int computeSurround(int c) {
+		
+		Tile t = cells[c];
+		int count = -1; // mines don't have surround value
+		
+		if(!t.isMine()) {
+			
+			count = 0;
+			int r = adjacency.row[c];
+			for(int i = adjacency.start[r]; i < adjacency.start[r + 1]; i++) count += cells[c + adjacency.list[i]].isMine() ? 1 : 0;
+		}
+		
+		t.setSurround(count);
+		
+		synchronized(computed) { // BitSet isn't thread safe, a lost bit would leave value of this tile uncleared for next game
+			computed.set(c);
+		}
+		return count;
+	}
+	/**
+	 * Count surround values of all tiles that haven't been counted yet.
+	 * Done before labelling openings, so that parallel labelling doesn't count values at the same time.
+	 */
+	private void computeAll() {
+		
+		for(int c = computed.nextClearBit(0); c < cells.length; c = computed.nextClearBit(c + 1)) {
+			
+			if(cells[c] != sentinel) this.computeSurround(c);
+		}
+	}
+	/**
+	 * Check if surround values are counted only when they are needed.
+	 * 
+	 * @return are surround values lazy
+	 */
+	public boolean isLazySurround() {
+		
+		return lazySurround;
+	}
+	/**
+	 * Set surround values to be counted only when they are needed: {@link #setSurroundAll()} doesn't count anything
+	 * and starting a game on a huge board costs only mine placement. Takes effect when next board is created.
+	 * 
+	 * @param lazySurround count surround values only when they are needed
+	 */
+	public void setLazySurround(boolean lazySurround) {
+		
+		this.lazySurround = lazySurround;
+	}
+	/**
+	 * Get how many tiles have surround value counted (in lazy mode).
+	 * 
+	 * @return amount of counted tiles, all tiles if surround values aren't lazy
+	 */
+	public int getComputedCount() {
+		
+		return computed != null ? computed.cardinality() : boardSize.x * boardSize.y;
+	}
+	/**
+	 * Get statistics of the board (3BV, openings, surround value histogram and mine density of 16x16 regions).
+	 * Statistics are counted again if mines have moved after board was generated.
+	 * 
+	 * @return statistics of the board
+	 * 
+	 * @see BoardStats
+	 */
+	public BoardStats getStats() {
+		
+		if(stats == null) stats = BoardStats.count(cells, stride, this.getOpenings(), 16);
+		return stats;
+	}
+	/**
+	 * Get how many openings board has.
+	 * 
+	 * @return amount of openings
+	 */
+	public int getOpeningCount() {
+		
+		return this.getOpenings().getCount();
+	}
+	/**
+	 * Get 3BV of the board: least amount of clicks needed to reveal all tiles without mines.
+	 * 
+	 * @return 3BV of the board
+	 */
+	public int getThreeBV() {
+		
+		return this.getOpenings().getThreeBV();
 	}
 	/**
 	 * Get how many mines board has.
@@ -387,6 +1025,69 @@ public class Board {
 		
 		this.boardSize = boardSize;
 	}
+	/**
+	 * Get seed of current mine locations.
+	 * 
+	 * @return seed that was used to randomize the board
+	 */
+	public long getSeed() {
+		
+		return seed;
+	}
+	/**
+	 * Check if first click of the game hasn't happened yet.
+	 * 
+	 * @return is next revealing click first click of the game
+	 */
+	public boolean isFirstClick() {
+		
+		return firstClick;
+	}
+	/**
+	 * Set if first click of the game hasn't happened yet, used when game is restored in the middle.
+	 * 
+	 * @param firstClick is next revealing click first click of the game
+	 */
+	public void setFirstClick(boolean firstClick) {
+		
+		this.firstClick = firstClick;
+	}
+	/**
+	 * Check if first click of the game is made safe by moving mines away from it.
+	 * 
+	 * @return is first click safe
+	 */
+	public boolean isSafeFirstClick() {
+		
+		return safeFirstClick;
+	}
+	/**
+	 * Set if first click of the game is made safe by moving mines away from it.
+	 * 
+	 * @param safeFirstClick is first click safe
+	 */
+	public void setSafeFirstClick(boolean safeFirstClick) {
+		
+		this.safeFirstClick = safeFirstClick;
+	}
+	/**
+	 * Check if tiles surrounding first click are also made safe, so that first click always opens an empty area.
+	 * 
+	 * @return are tiles surrounding first click safe
+	 */
+	public boolean isSafeOpening() {
+		
+		return safeOpening;
+	}
+	/**
+	 * Set if tiles surrounding first click are also made safe, so that first click always opens an empty area.
+	 * 
+	 * @param safeOpening are tiles surrounding first click safe
+	 */
+	public void setSafeOpening(boolean safeOpening) {
+		
+		this.safeOpening = safeOpening;
+	}
 	/**
 	 * Get resolution of tiles in pixels.
 	 * 
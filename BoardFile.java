@@ -0,0 +1,415 @@
+package minesweeper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Read and write mine layouts of game boards, one board or a corpus of many boards in one file.
+ * <p>
+ * Binary format, all numbers big-endian:
+ * <pre>
+ * bytes 0-3    magic 'M' 'S' 'B' 1
+ * bytes 4-7    int columns
+ * bytes 8-11   int rows
+ * bytes 12-15  int mines
+ * bytes 16-23  long seed (used for mines moved by first click)
+ * bytes 24-    (columns * rows + 63) / 64 longs, bit i % 64 of long i / 64 is set if tile i (row by row) has a mine
+ * </pre>
+ * Text format is a header line followed by one line per row, '*' is a mine and '.' is a tile without mine:
+ * <pre>
+ * minesweeper columns rows mines seed
+ * ..*.
+ * *...
+ * </pre>
+ * Corpus file is boards written one after another, formats can be mixed and text boards may have empty lines between them.
+ * Reader and writer go through the file byte by byte with buffered streams, so no strings are created for rows or numbers.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#load(int, int, int, int, long[], long)
+ */
+public class BoardFile {
+	
+	private static final int MAGIC = ('M' << 24) | ('S' << 16) | ('B' << 8) | 1; // first four bytes of binary board
+	private static final byte[] TEXT_HEADER = {'m', 'i', 'n', 'e', 's', 'w', 'e', 'e', 'p', 'e', 'r'}; // first word of text board
+	
+	private int columns; // board width in tiles
+	private int rows; // board height in tiles
+	private int mines; // mines in board
+	private long seed; // seed for mines moved by first click
+	private long[] bits = new long[0]; // mine locations, reused between boards
+	
+	/**
+	 * Layout of one board, filled by {@link Reader} and written by {@link Writer}.
+	 */
+	public BoardFile() {}
+	
+	/**
+	 * Copy layout of board.
+	 * 
+	 * @param board board that is copied
+	 */
+	public void from(Board board) {
+		
+		columns = board.getBoardSize().x;
+		rows = board.getBoardSize().y;
+		mines = board.getMines();
+		seed = board.getSeed();
+		bits = board.getMineBits(bits);
+	}
+	
+	/**
+	 * Load layout into board. Surround values are set too, so board is ready for a new game.
+	 * 
+	 * @param board board that gets the layout
+	 */
+	public void apply(Board board) {
+		
+		board.load(board.getResolution().x, board.getResolution().y, columns, rows, bits, seed);
+		board.setSurroundAll();
+	}
+	
+	/**
+	 * Go through all boards of corpus file. Same layout object is given for every board, so copy what needs to be kept.
+	 * 
+	 * @param path corpus file
+	 * @param action called for every board in file
+	 * @return amount of boards in file
+	 * 
+	 * @throws IOException file couldn't be read or it isn't a board file
+	 */
+	public static int readCorpus(Path path, Consumer<BoardFile> action) throws IOException {
+		
+		BoardFile layout = new BoardFile();
+		int count = 0;
+		
+		try(Reader reader = new Reader(Files.newInputStream(path))) {
+			
+			while(reader.next(layout)) {
+				
+				action.accept(layout);
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	private int words() { // longs needed for mine bits
+		
+		return (int)(((long)columns * rows + 63) >>> 6);
+	}
+	
+	/**
+	 * Streaming reader of board files. Every call of {@link #next(BoardFile)} reads one board, binary and text boards are detected automatically.
+	 */
+	public static class Reader implements Closeable {
+		
+		private DataInputStream in; // buffered input
+		private byte[] row = new byte[0]; // reused row of text board
+		
+		/**
+		 * Streaming reader of board files.
+		 * 
+		 * @param in stream that is read, it is buffered by the reader
+		 */
+		public Reader(InputStream in) {
+			
+			this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+		}
+		
+		/**
+		 * Read next board into given layout, its mine array is reused if it is big enough.
+		 * 
+		 * @param out layout where board is read
+		 * @return was board read, false at end of file
+		 * 
+		 * @throws IOException file couldn't be read or it isn't a board file
+		 */
+		public boolean next(BoardFile out) throws IOException {
+			
+			int b;
+			
+			do { // skip empty lines between boards
+				
+				in.mark(1);
+				b = in.read();
+			
+			} while(b == '\n' || b == '\r');
+			
+			if(b < 0) return false;
+			in.reset();
+			
+			if(b == 'M') this.readBinary(out);
+			else if(b == TEXT_HEADER[0]) this.readText(out);
+			else throw new IOException("Not a board file, unexpected byte " + b);
+			
+			return true;
+		}
+		
+		private void readBinary(BoardFile out) throws IOException { // header and mine bits
+			
+			if(in.readInt() != MAGIC) throw new IOException("Not a binary board");
+			
+			this.header(out, in.readInt(), in.readInt(), in.readInt(), in.readLong());
+			
+			for(int w = 0; w < out.words(); w++) out.bits[w] = in.readLong();
+		}
+		
+		private void readText(BoardFile out) throws IOException { // header line and one line per row
+			
+			for(byte h : TEXT_HEADER) {
+				
+				if(in.read() != h) throw new IOException("Not a text board");
+			}
+			
+			int columns = (int)this.number();
+			int rows = (int)this.number();
+			int mines = (int)this.number();
+			long seed = this.number();
+			
+			this.header(out, columns, rows, mines, seed);
+			this.skipLine(false);
+			
+			if(row.length < columns) row = new byte[columns];
+			
+			for(int y = 0; y < rows; y++) {
+				
+				in.readFully(row, 0, columns); // whole row at once
+				
+				for(int x = 0; x < columns; x++) {
+					
+					int b = row[x];
+					
+					if(b == '*') {
+						
+						int pos = y * columns + x;
+						out.bits[pos >>> 6] |= 1L << pos;
+					}
+					else if(b != '.') throw new IOException("Unexpected byte " + b + " at row " + y + " column " + x);
+				}
+				this.skipLine(y == rows - 1); // last row of the file doesn't need a line break
+			}
+		}
+		
+		private void header(BoardFile out, int columns, int rows, int mines, long seed) throws IOException { // check header and prepare mine array
+			
+			if(columns <= 0 || rows <= 0 || (long)columns * rows > Integer.MAX_VALUE) throw new IOException("Invalid board size " + columns + " x " + rows);
+			
+			out.columns = columns;
+			out.rows = rows;
+			out.mines = mines;
+			out.seed = seed;
+			
+			if(out.bits.length < out.words()) out.bits = new long[out.words()];
+			else Arrays.fill(out.bits, 0L);
+		}
+		
+		private long number() throws IOException { // parse number after spaces directly from bytes
+			
+			int b = in.read();
+			while(b == ' ' || b == '\t') b = in.read();
+			
+			boolean negative = (b == '-');
+			if(negative) b = in.read();
+			if(b < '0' || b > '9') throw new IOException("Number expected in header");
+			
+			long value = 0;
+			
+			while(b >= '0' && b <= '9') {
+				
+				value = value * 10 + (b - '0');
+				in.mark(1);
+				b = in.read();
+			}
+			in.reset(); // byte after number belongs to next token
+			
+			return negative ? -value : value;
+		}
+		
+		private void skipLine(boolean last) throws IOException { // skip rest of the line, end of file ends the line only after last row
+			
+			int b = in.read();
+			
+			while(b != '\n') {
+				
+				if(b < 0 && last) return;
+				if(b < 0) throw new EOFException("Board ended too early");
+				b = in.read();
+			}
+		}
+		
+		/**
+		 * Close the stream.
+		 * 
+		 * @throws IOException stream couldn't be closed
+		 */
+		@Override
+		public void close() throws IOException {
+			
+			in.close();
+		}
+	}
+	
+	/**
+	 * Streaming writer of board files. Boards are appended one after another, so many boards make a corpus.
+	 */
+	public static class Writer implements Closeable {
+		
+		private DataOutputStream out; // buffered output
+		private boolean text; // write text boards instead of binary ones
+		private byte[] row = new byte[0]; // reused row of text board
+		
+		/**
+		 * Streaming writer of board files.
+		 * 
+		 * @param out stream that is written, it is buffered by the writer
+		 * @param text write human-readable text boards instead of binary boards
+		 */
+		public Writer(OutputStream out, boolean text) {
+			
+			this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+			this.text = text;
+		}
+		
+		/**
+		 * Append board to the stream.
+		 * 
+		 * @param layout board that is written
+		 * 
+		 * @throws IOException stream couldn't be written
+		 */
+		public void write(BoardFile layout) throws IOException {
+			
+			if(text) this.writeText(layout);
+			else this.writeBinary(layout);
+		}
+		
+		private void writeBinary(BoardFile layout) throws IOException {
+			
+			out.writeInt(MAGIC);
+			out.writeInt(layout.columns);
+			out.writeInt(layout.rows);
+			out.writeInt(layout.mines);
+			out.writeLong(layout.seed);
+			
+			for(int w = 0; w < layout.words(); w++) out.writeLong(layout.bits[w]);
+		}
+		
+		private void writeText(BoardFile layout) throws IOException {
+			
+			out.write(TEXT_HEADER);
+			this.number(layout.columns);
+			this.number(layout.rows);
+			this.number(layout.mines);
+			this.number(layout.seed);
+			out.write('\n');
+			
+			if(row.length < layout.columns + 1) row = new byte[layout.columns + 1];
+			row[layout.columns] = '\n';
+			
+			for(int y = 0; y < layout.rows; y++) {
+				
+				for(int x = 0; x < layout.columns; x++) {
+					
+					int pos = y * layout.columns + x;
+					row[x] = ((layout.bits[pos >>> 6] >>> pos) & 1) != 0 ? (byte)'*' : (byte)'.';
+				}
+				out.write(row, 0, layout.columns + 1);
+			}
+		}
+		
+		private void number(long value) throws IOException { // write space and number without creating a string
+			
+			out.write(' ');
+			
+			if(value < 0) out.write('-');
+			else value = -value; // digits are taken from negative value, so smallest long works too
+			
+			long div = 1;
+			while(value / div <= -10) div *= 10;
+			
+			for(; div > 0; div /= 10) out.write((int)('0' - (value / div) % 10));
+		}
+		
+		/**
+		 * Write buffered boards to the stream.
+		 * 
+		 * @throws IOException stream couldn't be written
+		 */
+		public void flush() throws IOException {
+			
+			out.flush();
+		}
+		
+		/**
+		 * Write buffered boards and close the stream.
+		 * 
+		 * @throws IOException stream couldn't be written or closed
+		 */
+		@Override
+		public void close() throws IOException {
+			
+			out.close();
+		}
+	}
+	
+	/**
+	 * Get board width in tiles.
+	 * 
+	 * @return amount of columns
+	 */
+	public int getColumns() {
+		
+		return columns;
+	}
+	/**
+	 * Get board height in tiles.
+	 * 
+	 * @return amount of rows
+	 */
+	public int getRows() {
+		
+		return rows;
+	}
+	/**
+	 * Get how many mines board has (as written in header).
+	 * 
+	 * @return amount of mines
+	 */
+	public int getMines() {
+		
+		return mines;
+	}
+	/**
+	 * Get seed for mines moved by first click.
+	 * 
+	 * @return seed
+	 */
+	public long getSeed() {
+		
+		return seed;
+	}
+	/**
+	 * Check if tile has a mine.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return does tile have a mine
+	 */
+	public boolean isMine(int x, int y) {
+		
+		int pos = y * columns + x;
+		return ((bits[pos >>> 6] >>> pos) & 1) != 0;
+	}
+}
\ No newline at end of file
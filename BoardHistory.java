@@ -0,0 +1,368 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Undo/redo history and named snapshots of tile states in game board.
+ * <p>
+ * Tile states are stored in chunks of 256 tiles. Every version of the board is a two level table of chunks,
+ * and versions share all chunks that haven't changed between them. When tiles change only their chunks are copied,
+ * so one move on a huge board costs a few chunks instead of the whole board.
+ * History has memory budget, oldest versions are removed when budget is exceeded. Named snapshots are kept until they are removed.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board
+ */
+public class BoardHistory {
+	
+	private static final int CHUNK_BITS = 8; // one chunk holds 256 tiles
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int TABLE_BITS = 8; // one table holds 256 chunks
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+	private static final State[] STATES = State.values(); // states by ordinal
+	
+	private static class Version { // one version of the board
+		
+		byte[][][] root; // tables of chunks of tile states
+		long bytes; // memory that was allocated for this version
+		
+		Version(byte[][][] root, long bytes) {
+			
+			this.root = root;
+			this.bytes = bytes;
+		}
+	}
+	
+	private Tile[] cells; // tiles of the board that history follows
+	private ArrayList<Version> versions = new ArrayList<Version>(); // versions from oldest to newest
+	private int position = -1; // index of version that board currently matches
+	private HashMap<String, Version> snapshots = new HashMap<String, Version>(); // named versions
+	
+	private boolean[] isDirty; // has chunk changed after last commit
+	private int[] dirty; // chunks that have changed after last commit
+	private int dirtyCount = 0;
+	
+	private long budget; // how many bytes history can use
+	private long used = 0; // how many bytes versions in history use
+	
+	/**
+	 * Undo/redo history and named snapshots of tile states in game board.
+	 * 
+	 * @param budget how many bytes history can use before oldest versions are removed
+	 */
+	public BoardHistory(long budget) {
+		
+		this.budget = budget;
+	}
+	
+	/**
+	 * Start history from current states of given tiles, all earlier versions and snapshots are removed.
+	 * 
+	 * @param cells tiles of the board
+	 */
+	public void reset(Tile[] cells) {
+		
+		this.cells = cells;
+		
+		int chunks = (cells.length + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+		isDirty = new boolean[chunks];
+		dirty = new int[chunks];
+		dirtyCount = 0;
+		
+		byte[][][] root = new byte[(chunks + TABLE_SIZE - 1) >>> TABLE_BITS][][];
+		long bytes = 16 + 8L * root.length;
+		
+		for(int hi = 0; hi < root.length; hi++) {
+			
+			root[hi] = new byte[Math.min(TABLE_SIZE, chunks - (hi << TABLE_BITS))][];
+			bytes += 16 + 8L * root[hi].length;
+			
+			for(int lo = 0; lo < root[hi].length; lo++) {
+				
+				root[hi][lo] = this.read((hi << TABLE_BITS) + lo);
+				bytes += 16 + root[hi][lo].length;
+			}
+		}
+		
+		versions.clear();
+		snapshots.clear();
+		versions.add(new Version(root, bytes));
+		position = 0;
+		used = bytes;
+	}
+	
+	/**
+	 * Tell that state of tile has changed, its chunk is copied on next commit.
+	 * 
+	 * @param c index of tile in cells array
+	 */
+	public void write(int c) {
+		
+		int chunk = c >>> CHUNK_BITS;
+		
+		if(!isDirty[chunk]) {
+			
+			isDirty[chunk] = true;
+			dirty[dirtyCount++] = chunk;
+		}
+	}
+	
+	/**
+	 * Save changed tiles as new version. Versions that could have been redone are removed.
+	 * 
+	 * @return was new version saved, false if nothing had changed
+	 */
+	public boolean commit() {
+		
+		if(dirtyCount == 0) return false;
+		
+		byte[][][] root = versions.get(position).root.clone(); // only tables with changed chunks are copied
+		boolean[] copied = new boolean[root.length];
+		long bytes = 16 + 8L * root.length;
+		boolean changed = false;
+		
+		for(int i = 0; i < dirtyCount; i++) {
+			
+			int chunk = dirty[i];
+			int hi = chunk >>> TABLE_BITS;
+			int lo = chunk & (TABLE_SIZE - 1);
+			byte[] states = this.read(chunk);
+			
+			isDirty[chunk] = false;
+			
+			if(Arrays.equals(states, root[hi][lo])) continue; // tiles changed back to what they were -> keep shared chunk
+			
+			if(!copied[hi]) {
+				
+				root[hi] = root[hi].clone();
+				copied[hi] = true;
+				bytes += 16 + 8L * root[hi].length;
+			}
+			root[hi][lo] = states;
+			bytes += 16 + states.length;
+			changed = true;
+		}
+		dirtyCount = 0;
+		
+		if(!changed) return false;
+		
+		while(versions.size() > position + 1) { // new move removes redo versions
+			
+			used -= versions.remove(versions.size() - 1).bytes;
+		}
+		
+		versions.add(new Version(root, bytes));
+		position++;
+		used += bytes;
+		
+		while(used > budget && position > 0) { // remove oldest versions until history fits into budget
+			
+			Version oldest = versions.remove(0);
+			long kept = this.shared(oldest, versions.get(0)); // chunks next version still uses stay in memory
+			
+			versions.get(0).bytes += kept; // next version is now oldest one that has them
+			used -= oldest.bytes - kept;
+			position--;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Return board to previous version. Changes that haven't been committed are committed first.
+	 * 
+	 * @param board board that is changed
+	 * 
+	 * @return was there a version to return to
+	 */
+	public boolean undo(Board board) {
+		
+		this.commit();
+		
+		if(position == 0) return false;
+		
+		this.apply(board, versions.get(position - 1));
+		position--;
+		return true;
+	}
+	
+	/**
+	 * Return board to version that was undone.
+	 * 
+	 * @param board board that is changed
+	 * 
+	 * @return was there a version to return to
+	 */
+	public boolean redo(Board board) {
+		
+		this.commit();
+		
+		if(position == versions.size() - 1) return false;
+		
+		this.apply(board, versions.get(position + 1));
+		position++;
+		return true;
+	}
+	
+	/**
+	 * Save current version with given name.
+	 * 
+	 * @param name name of snapshot
+	 */
+	public void saveSnapshot(String name) {
+		
+		this.commit();
+		snapshots.put(name, versions.get(position));
+	}
+	
+	/**
+	 * Return board to named snapshot. Snapshot is added as new version, so returning to it can be undone.
+	 * 
+	 * @param board board that is changed
+	 * @param name name of snapshot
+	 * 
+	 * @return was snapshot found
+	 */
+	public boolean loadSnapshot(Board board, String name) {
+		
+		Version snapshot = snapshots.get(name);
+		
+		if(snapshot == null) return false;
+		
+		this.commit();
+		this.apply(board, snapshot);
+		
+		while(versions.size() > position + 1) { // loading removes redo versions like any other move
+			
+			used -= versions.remove(versions.size() - 1).bytes;
+		}
+		versions.add(new Version(snapshot.root, 0)); // snapshot shares all of its chunks
+		position++;
+		return true;
+	}
+	
+	/**
+	 * Remove named snapshot.
+	 * 
+	 * @param name name of snapshot
+	 */
+	public void removeSnapshot(String name) {
+		
+		snapshots.remove(name);
+	}
+	
+	private long shared(Version removed, Version next) { // bytes of tables and chunks of removed version that next version shares
+		
+		if(removed.root == next.root) return removed.bytes; // version of loaded snapshot shares everything
+		
+		long bytes = 0;
+		
+		for(int hi = 0; hi < next.root.length; hi++) {
+			
+			boolean table = removed.root[hi] == next.root[hi]; // shared table shares all of its chunks too
+			if(table) bytes += 16 + 8L * next.root[hi].length;
+			
+			for(int lo = 0; lo < next.root[hi].length; lo++) {
+				
+				if(table || removed.root[hi][lo] == next.root[hi][lo]) bytes += 16 + next.root[hi][lo].length;
+			}
+		}
+		return Math.min(bytes, removed.bytes); // never more than removed version was counted for
+	}
+	
+	private void apply(Board board, Version target) { // change tiles that differ between current version and target version
+		
+		byte[][][] from = versions.get(position).root;
+		byte[][][] to = target.root;
+		
+		for(int hi = 0; hi < to.length; hi++) {
+			
+			if(from[hi] == to[hi]) continue; // shared table -> no changes
+			
+			for(int lo = 0; lo < to[hi].length; lo++) {
+				
+				if(from[hi][lo] == to[hi][lo]) continue; // shared chunk -> no changes
+				
+				int base = ((hi << TABLE_BITS) + lo) << CHUNK_BITS;
+				
+				for(int i = 0; i < to[hi][lo].length; i++) {
+					
+					if(from[hi][lo][i] != to[hi][lo][i]) board.changeState(base + i, STATES[to[hi][lo][i]]);
+				}
+			}
+		}
+		
+		for(int i = 0; i < dirtyCount; i++) isDirty[dirty[i]] = false; // board now matches target version
+		dirtyCount = 0;
+	}
+	
+	private byte[] read(int chunk) { // copy states of tiles in chunk
+		
+		int base = chunk << CHUNK_BITS;
+		byte[] states = new byte[Math.min(CHUNK_SIZE, cells.length - base)];
+		
+		for(int i = 0; i < states.length; i++) {
+			
+			states[i] = (byte)cells[base + i].getState().ordinal();
+		}
+		return states;
+	}
+	
+	/**
+	 * Check if there is version to undo to.
+	 * 
+	 * @return can move be undone
+	 */
+	public boolean canUndo() {
+		
+		return position > 0 || dirtyCount > 0;
+	}
+	/**
+	 * Check if there is version to redo to.
+	 * 
+	 * @return can move be redone
+	 */
+	public boolean canRedo() {
+		
+		return position < versions.size() - 1;
+	}
+	/**
+	 * Get how many versions history has.
+	 * 
+	 * @return amount of versions
+	 */
+	public int getVersionCount() {
+		
+		return versions.size();
+	}
+	/**
+	 * Get how many bytes versions in history use (estimate, shared chunks are counted to oldest version that has them).
+	 * 
+	 * @return used memory in bytes
+	 */
+	public long getUsed() {
+		
+		return used;
+	}
+	/**
+	 * Get how many bytes history can use.
+	 * 
+	 * @return memory budget in bytes
+	 */
+	public long getBudget() {
+		
+		return budget;
+	}
+	/**
+	 * Set how many bytes history can use, oldest versions are removed on next commit if budget is exceeded.
+	 * 
+	 * @param budget memory budget in bytes
+	 */
+	public void setBudget(long budget) {
+		
+		this.budget = budget;
+	}
+}
\ No newline at end of file
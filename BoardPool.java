@@ -0,0 +1,189 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of game boards that are generated beforehand on background thread.
+ * <p>
+ * Every difficulty level has a few boards with mines and surround values already set.
+ * New game takes ready board from the pool instead of generating it on animation thread,
+ * and the pool is filled again in the background for taken level and the levels next to it.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board
+ */
+public class BoardPool {
+	
+	private Point resolution; // tile size in pixels
+	private Point boardSize; // board size in tiles
+	private int[] padding; // paddings of the board
+	private int[] mines; // mine count of every difficulty level
+	private int size; // how many boards are kept ready for each level
+	private long historyBudget; // undo/redo history budget of generated boards
+	
+	private ArrayList<ArrayBlockingQueue<Board>> ready = new ArrayList<ArrayBlockingQueue<Board>>(); // ready boards of each level
+	private AtomicInteger[] pending; // boards of each level that worker is generating or will generate
+	private ExecutorService worker; // background thread that generates boards
+	
+	private AtomicLong hits = new AtomicLong(); // games that got ready board
+	private AtomicLong misses = new AtomicLong(); // games that had to generate board themselves
+	
+	/**
+	 * Pool of game boards that are generated beforehand on background thread.
+	 * 
+	 * @param resolution size of tiles in pixels
+	 * @param boardSize size of board in tiles (columns, rows)
+	 * @param padding paddings of the board (top, bottom, left, right)
+	 * @param mines mine count of every difficulty level, index is the level
+	 * @param size how many boards are kept ready for each level
+	 * @param historyBudget how many bytes undo/redo history of generated boards can use
+	 */
+	public BoardPool(Point resolution, Point boardSize, int[] padding, int[] mines, int size, long historyBudget) {
+		
+		this.resolution = resolution;
+		this.boardSize = boardSize;
+		this.padding = padding;
+		this.mines = mines.clone();
+		this.size = size;
+		this.historyBudget = historyBudget;
+		
+		pending = new AtomicInteger[mines.length];
+		
+		for(int i = 0; i < mines.length; i++) {
+			
+			ready.add(new ArrayBlockingQueue<Board>(size));
+			pending[i] = new AtomicInteger();
+		}
+		
+		worker = Executors.newSingleThreadExecutor(r -> {
+			
+			Thread t = new Thread(r, "board-pool");
+			t.setDaemon(true); // pool doesn't keep program running
+			t.setPriority(Thread.MIN_PRIORITY); // animation thread goes first
+			return t;
+		});
+	}
+	
+	/**
+	 * Take ready board of given level from the pool. Pool starts filling the level and the levels next to it again.
+	 * 
+	 * @param level difficulty level
+	 * @return board with mines and surround values set, null if there wasn't ready board (board has to be generated by caller)
+	 */
+	public Board take(int level) {
+		
+		Board board = ready.get(level).poll();
+		
+		if(board != null) hits.incrementAndGet();
+		else misses.incrementAndGet();
+		
+		this.fill(level);
+		return board;
+	}
+	
+	/**
+	 * Start generating boards for given level and the levels next to it, until each of them has full pool.
+	 * 
+	 * @param level difficulty level
+	 */
+	public void fill(int level) {
+		
+		for(int l = Math.max(0, level - 1); l <= Math.min(mines.length - 1, level + 1); l++) {
+			
+			final int target = l;
+			
+			while(ready.get(l).size() + pending[l].get() < size) {
+				
+				pending[l].incrementAndGet();
+				
+				try {
+					
+					worker.execute(() -> this.generate(target));
+				
+				} catch(RejectedExecutionException e) { // pool has been shut down
+					
+					pending[l].decrementAndGet();
+					return;
+				}
+			}
+		}
+	}
+	
+	private void generate(int level) { // generate one board on worker thread
+		
+		try {
+			
+			Board board = new Board(resolution, boardSize, mines[level], padding);
+			board.setHistoryBudget(historyBudget);
+			board.randomize(resolution.x, resolution.y); // new random seed for every board
+			board.setSurroundAll();
+			board.getStats(); // count statistics here too, so game doesn't have to
+			ready.get(level).offer(board);
+		
+		} catch(RuntimeException e) {
+			
+			System.err.println("Couldn't generate board for pool.");
+			e.printStackTrace();
+		
+		} finally {
+			
+			pending[level].decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Stop generating boards, boards that are ready are dropped.
+	 */
+	public void shutdown() {
+		
+		worker.shutdownNow();
+		
+		for(ArrayBlockingQueue<Board> q : ready) q.clear();
+	}
+	
+	/**
+	 * Get how many ready boards given level has.
+	 * 
+	 * @param level difficulty level
+	 * @return amount of ready boards
+	 */
+	public int getReady(int level) {
+		
+		return ready.get(level).size();
+	}
+	/**
+	 * Get how many games got ready board from the pool.
+	 * 
+	 * @return amount of pool hits
+	 */
+	public long getHits() {
+		
+		return hits.get();
+	}
+	/**
+	 * Get how many games had to generate board themselves because pool was empty.
+	 * 
+	 * @return amount of pool misses
+	 */
+	public long getMisses() {
+		
+		return misses.get();
+	}
+	/**
+	 * Get how many boards are kept ready for each level.
+	 * 
+	 * @return pool size of one level
+	 */
+	public int getSize() {
+		
+		return size;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package minesweeper;
+
+import java.util.stream.IntStream;
+
+/**
+ * Statistics of generated game board: 3BV, openings, isolated numbered tiles,
+ * histogram of surround values and mine density of square regions.
+ * <p>
+ * Openings come from {@link Openings} that are labelled when board is generated,
+ * everything else is counted in one pass over the tiles. Rows are split into bands that are counted in parallel,
+ * bands are whole rows of regions so every band writes only its own regions.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#getStats()
+ */
+public class BoardStats {
+	
+	private int columns; // board width in tiles
+	private int rows; // board height in tiles
+	private int mines; // mines in board
+	private int openings; // amount of openings
+	private int isolated; // numbered tiles that don't touch any opening
+	private int threeBV; // least amount of clicks needed to clear the board
+	private long[] histogram = new long[9]; // how many non mine tiles have each surround value 0-8
+	
+	private int regionSize; // width and height of one density region in tiles
+	private int regionColumns; // regions in one row
+	private int regionRows; // rows of regions
+	private int[] regionMines; // mines in every region, row by row
+	
+	private BoardStats() {}
+	
+	/**
+	 * Count statistics of board. Surround values of tiles need to be set before calling this.
+	 * 
+	 * @param cells tiles with border of sentinel tiles, stored row by row
+	 * @param stride width of bordered board in tiles
+	 * @param found openings of the board
+	 * @param regionSize width and height of density regions in tiles
+	 * 
+	 * @return statistics of the board
+	 */
+	public static BoardStats count(Tile[] cells, int stride, Openings found, int regionSize) {
+		
+		BoardStats s = new BoardStats();
+		
+		s.columns = stride - 2;
+		s.rows = cells.length / stride - 2;
+		s.openings = found.getCount();
+		s.isolated = found.getIsolated();
+		s.threeBV = found.getThreeBV();
+		
+		s.regionSize = regionSize;
+		s.regionColumns = (s.columns + regionSize - 1) / regionSize;
+		s.regionRows = (s.rows + regionSize - 1) / regionSize;
+		s.regionMines = new int[s.regionColumns * s.regionRows];
+		
+		int bandRegions = Math.max(1, s.regionRows / (Runtime.getRuntime().availableProcessors() * 4)); // region rows in one band
+		int bands = (s.regionRows + bandRegions - 1) / bandRegions;
+		long[][] histograms = new long[bands][9]; // every band counts its own histogram
+		
+		IntStream.range(0, bands).parallel().forEach(b -> {
+			
+			long[] h = histograms[b];
+			int first = b * bandRegions * regionSize; // first row of band
+			int last = Math.min(first + bandRegions * regionSize, s.rows);
+			
+			for(int y = first; y < last; y++) {
+				
+				int c = (y + 1) * stride + 1; // first tile of row in bordered board
+				int region = (y / regionSize) * s.regionColumns;
+				
+				for(int x = 0; x < s.columns; x++, c++) {
+					
+					Tile t = cells[c];
+					
+					if(t.isMine()) s.regionMines[region + x / regionSize]++;
+					else if(t.getSurround() >= 0) h[t.getSurround()]++;
+				}
+			}
+		});
+		
+		for(long[] h : histograms) { // join band histograms
+			for(int i = 0; i < h.length; i++) s.histogram[i] += h[i];
+		}
+		for(int m : s.regionMines) s.mines += m;
+		
+		return s;
+	}
+	
+	/**
+	 * Get 3BV of the board: least amount of clicks needed to reveal all tiles without mines.
+	 * 
+	 * @return 3BV of the board
+	 */
+	public int getThreeBV() {
+		
+		return threeBV;
+	}
+	/**
+	 * Get 3BV divided by tile count, so boards of different sizes can be compared.
+	 * 
+	 * @return 3BV per tile
+	 */
+	public double getThreeBVDensity() {
+		
+		return (double)threeBV / ((long)columns * rows);
+	}
+	/**
+	 * Get how many openings board has.
+	 * 
+	 * @return amount of openings
+	 */
+	public int getOpenings() {
+		
+		return openings;
+	}
+	/**
+	 * Get how many numbered tiles don't touch any opening.
+	 * 
+	 * @return amount of isolated numbered tiles
+	 */
+	public int getIsolated() {
+		
+		return isolated;
+	}
+	/**
+	 * Get how many mines board has.
+	 * 
+	 * @return amount of mines
+	 */
+	public int getMines() {
+		
+		return mines;
+	}
+	/**
+	 * Get how many tiles without mine have given surround value.
+	 * 
+	 * @param value surround value 0-8
+	 * @return amount of tiles
+	 */
+	public long getHistogram(int value) {
+		
+		return histogram[value];
+	}
+	/**
+	 * Get width and height of one density region in tiles.
+	 * 
+	 * @return region size
+	 */
+	public int getRegionSize() {
+		
+		return regionSize;
+	}
+	/**
+	 * Get how many regions board has horizontally and vertically.
+	 * 
+	 * @return columns and rows of regions
+	 */
+	public int[] getRegionCount() {
+		
+		return new int[] {regionColumns, regionRows};
+	}
+	/**
+	 * Get how many mines region has.
+	 * 
+	 * @param rx column of region
+	 * @param ry row of region
+	 * @return amount of mines
+	 */
+	public int getRegionMines(int rx, int ry) {
+		
+		return regionMines[ry * regionColumns + rx];
+	}
+	/**
+	 * Get share of tiles in region that have a mine. Regions at right and bottom edges can be smaller than others.
+	 * 
+	 * @param rx column of region
+	 * @param ry row of region
+	 * @return mine density between 0 and 1
+	 */
+	public double getRegionDensity(int rx, int ry) {
+		
+		int w = Math.min(regionSize, columns - rx * regionSize);
+		int h = Math.min(regionSize, rows - ry * regionSize);
+		return (double)this.getRegionMines(rx, ry) / (w * h);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package minesweeper;
+
+/**
+ * Pyramid of tile state counts. Level k has one block for every 2^k x 2^k tiles and knows how many of them
+ * are hidden, revealed and flagged, top level is one block for the whole board.
+ * <p>
+ * Pyramid listens to tile changes of the board, one change updates one block on every level, so it costs O(log n).
+ * Renderers can then read state counts of any area size with one lookup: minimap gets color of a pixel
+ * and overview can skip blocks that are still completely hidden.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#addTileListener(TileListener)
+ */
+public class CountPyramid implements TileListener {
+	
+	/** index of hidden count in block */
+	public static final int HIDDEN = 0;
+	/** index of revealed count in block */
+	public static final int REVEALED = 1;
+	/** index of flagged count in block */
+	public static final int FLAGGED = 2;
+	private static final int COUNTS = 3; // counts in one block
+	
+	private Board board; // board that pyramid follows
+	private Tile[][] tiles; // tiles that pyramid was built from, new array means new board
+	private int columns; // board width in tiles
+	private int rows; // board height in tiles
+	private int levels; // highest level, its one block covers whole board
+	private int[] levelColumns; // blocks in one row of every level
+	private int[][] counts; // counts of every level, block by block (hidden, revealed, flagged), level 0 is unused
+	
+	/**
+	 * Follow given board. Pyramid is built again if board was swapped or it has new tiles (new game), otherwise this does nothing.
+	 * 
+	 * @param b board to follow
+	 */
+	public void sync(Board b) {
+		
+		if(b != board) { // board was swapped -> follow new board
+			
+			if(board != null) board.removeTileListener(this);
+			b.addTileListener(this);
+			board = b;
+			tiles = null;
+		}
+		
+		if(tiles != board.getTiles()) this.build(board.getTiles());
+	}
+	
+	private void build(Tile[][] t) { // count all levels, first level from tiles and others from level below
+		
+		tiles = t;
+		rows = t.length;
+		columns = rows > 0 ? t[0].length : 0;
+		levels = 1;
+		while((1 << levels) < Math.max(columns, rows)) levels++;
+		
+		levelColumns = new int[levels + 1];
+		counts = new int[levels + 1][];
+		
+		for(int k = 1; k <= levels; k++) {
+			
+			levelColumns[k] = ((columns - 1) >> k) + 1;
+			counts[k] = new int[levelColumns[k] * (((rows - 1) >> k) + 1) * COUNTS];
+		}
+		
+		for(int y = 0; y < rows; y++) {
+			for(int x = 0; x < columns; x++) {
+				
+				int s = index(t[y][x].getState());
+				if(s >= 0) counts[1][((y >> 1) * levelColumns[1] + (x >> 1)) * COUNTS + s]++;
+			}
+		}
+		
+		for(int k = 2; k <= levels; k++) { // every block is sum of its four blocks on level below
+			
+			int below = levelColumns[k - 1];
+			int belowRows = counts[k - 1].length / COUNTS / below;
+			
+			for(int by = 0; by < belowRows; by++) {
+				for(int bx = 0; bx < below; bx++) {
+					
+					int from = (by * below + bx) * COUNTS;
+					int to = ((by >> 1) * levelColumns[k] + (bx >> 1)) * COUNTS;
+					
+					for(int s = 0; s < COUNTS; s++) counts[k][to + s] += counts[k - 1][from + s];
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void tileChanged(int x, int y, State from, State to) { // move tile from one count to another on every level
+		
+		if(counts == null) return;
+		
+		int f = index(from);
+		int t = index(to);
+		
+		for(int k = 1; k <= levels; k++) {
+			
+			int block = ((y >> k) * levelColumns[k] + (x >> k)) * COUNTS;
+			
+			if(f >= 0) counts[k][block + f]--;
+			if(t >= 0) counts[k][block + t]++;
+		}
+	}
+	
+	private static int index(State s) { // count index of state, -1 for states that aren't counted
+		
+		switch(s) {
+			case HIDDEN:   return HIDDEN;
+			case REVEALED: return REVEALED;
+			case FLAGGED:  return FLAGGED;
+			default:       return -1;
+		}
+	}
+	
+	/**
+	 * Get how many tiles of block have given state.
+	 * 
+	 * @param k level, block is 2^k x 2^k tiles (1 to {@link #getLevels()})
+	 * @param bx column of block
+	 * @param by row of block
+	 * @param state {@link #HIDDEN}, {@link #REVEALED} or {@link #FLAGGED}
+	 * @return amount of tiles
+	 */
+	public int getCount(int k, int bx, int by, int state) {
+		
+		return counts[k][(by * levelColumns[k] + bx) * COUNTS + state];
+	}
+	/**
+	 * Check if all tiles of block are hidden.
+	 * 
+	 * @param k level, block is 2^k x 2^k tiles (1 to {@link #getLevels()})
+	 * @param bx column of block
+	 * @param by row of block
+	 * @return is block completely hidden
+	 */
+	public boolean isAllHidden(int k, int bx, int by) {
+		
+		int block = (by * levelColumns[k] + bx) * COUNTS;
+		return counts[k][block + REVEALED] == 0 && counts[k][block + FLAGGED] == 0;
+	}
+	/**
+	 * Get highest level of pyramid, its one block covers whole board.
+	 * 
+	 * @return amount of levels
+	 */
+	public int getLevels() {
+		
+		return levels;
+	}
+	/**
+	 * Get board width in tiles.
+	 * 
+	 * @return amount of columns
+	 */
+	public int getColumns() {
+		
+		return columns;
+	}
+	/**
+	 * Get board height in tiles.
+	 * 
+	 * @return amount of rows
+	 */
+	public int getRows() {
+		
+		return rows;
+	}
+}
\ No newline at end of file
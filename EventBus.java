@@ -0,0 +1,336 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer of game events with one publisher (game thread) and any amount of subscribers.
+ * <p>
+ * All events are created with the bus and reused, publishing only writes values into next event and moves the cursor,
+ * so game thread doesn't allocate. Every subscriber has its own thread and its own sequence: how far it has handled events.
+ * Publisher can't overwrite events that the slowest subscriber hasn't handled yet. When ring is full, event is dropped
+ * (default) or publisher waits for subscribers, if bus is set to block. Lag of every subscriber, dropped events and
+ * waits of publisher can be read from the bus, so slow subscribers can be seen.
+ * <p>
+ * Bus listens to tile changes of the board, so revealed, flagged, unflagged and hidden tiles are published
+ * without changing board code. Game loop publishes chords, explosions, wins and new games itself.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see GameEvent
+ * @see GameEventHandler
+ */
+public class EventBus implements TileListener {
+	
+	private static final int SPINS = 100; // empty polls before subscriber starts yielding
+	private static final int YIELDS = 100; // yields before subscriber starts sleeping
+	private static final long PARK = 100_000; // sleep of idle subscriber in nanoseconds
+	
+	/**
+	 * Subscriber of the bus and its thread.
+	 */
+	public final class Subscription {
+		
+		private String name; // name of subscriber, used for thread name
+		private GameEventHandler handler; // handler that is called for every event
+		private AtomicLong sequence; // last event that has been handled
+		private Thread thread;
+		private volatile boolean running = true;
+		
+		private volatile long handled = 0; // events handled
+		private volatile long errors = 0; // events where handler threw exception
+		private volatile long maxLag = 0; // most events that have been waiting for this subscriber at once
+		
+		Subscription(String name, GameEventHandler handler, long start) {
+			
+			this.name = name;
+			this.handler = handler;
+			this.sequence = new AtomicLong(start);
+			this.thread = new Thread(this::run, "events-" + name);
+			thread.setDaemon(true); // subscribers don't keep program running
+		}
+		
+		private void run() { // subscriber loop, handles events as soon as they are published
+			
+			long next = sequence.get() + 1;
+			int idle = 0;
+			
+			while(running) {
+				
+				long available = cursor.get();
+				
+				if(available < next) { // nothing new -> spin, then yield, then sleep
+					
+					if(idle < SPINS) idle++;
+					else if(idle < SPINS + YIELDS) { idle++; Thread.yield(); }
+					else LockSupport.parkNanos(PARK);
+					continue;
+				}
+				idle = 0;
+				
+				if(available - next + 1 > maxLag) maxLag = available - next + 1;
+				
+				for(long s = next; s <= available; s++) { // whole batch is handled before sequence is moved
+					
+					try {
+						
+						handler.onEvent(ring[(int)s & mask], s == available);
+					
+					} catch(RuntimeException e) {
+						
+						System.err.println("Event handler " + name + " failed.");
+						e.printStackTrace();
+						errors++;
+					}
+				}
+				
+				handled += available - next + 1;
+				sequence.lazySet(available); // publisher can reuse handled events
+				next = available + 1;
+			}
+		}
+		
+		/**
+		 * Get name of subscriber.
+		 * 
+		 * @return name
+		 */
+		public String getName() {
+			
+			return name;
+		}
+		/**
+		 * Get how many published events subscriber hasn't handled yet.
+		 * 
+		 * @return amount of waiting events
+		 */
+		public long getLag() {
+			
+			return cursor.get() - sequence.get();
+		}
+		/**
+		 * Get most events that have been waiting for subscriber at once.
+		 * 
+		 * @return largest lag
+		 */
+		public long getMaxLag() {
+			
+			return maxLag;
+		}
+		/**
+		 * Get how many events subscriber has handled.
+		 * 
+		 * @return amount of handled events
+		 */
+		public long getHandled() {
+			
+			return handled;
+		}
+		/**
+		 * Get how many times handler has thrown exception.
+		 * 
+		 * @return amount of failed events
+		 */
+		public long getErrors() {
+			
+			return errors;
+		}
+	}
+	
+	private GameEvent[] ring; // reusable events, length is power of two
+	private int mask; // ring.length - 1
+	private AtomicLong cursor = new AtomicLong(-1); // last published event
+	private volatile Subscription[] subscriptions = new Subscription[0]; // copied when subscribers change, publisher reads it without locking
+	
+	// PUBLISHER THREAD ONLY (volatile, so counters can be read from other threads)
+	private long gate = -1; // smallest subscriber sequence when it was last checked
+	private volatile long published = 0; // events published
+	private volatile long dropped = 0; // events dropped because ring was full
+	private volatile long fullWaits = 0; // times publisher had to wait for subscribers
+	
+	private volatile boolean blocking = false; // does publisher wait when ring is full
+	
+	/**
+	 * Ring buffer of game events with one publisher and any amount of subscribers.
+	 * 
+	 * @param capacity how many events fit into ring, rounded up to power of two
+	 */
+	public EventBus(int capacity) {
+		
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // next power of two
+		ring = new GameEvent[size];
+		mask = size - 1;
+		
+		for(int i = 0; i < size; i++) ring[i] = new GameEvent(); // all events are created beforehand
+	}
+	
+	/**
+	 * Add subscriber, it gets events that are published after this. Handler is called on a new thread.
+	 * 
+	 * @param name name of subscriber
+	 * @param handler handler of events
+	 * @return subscription that tells lag of subscriber
+	 */
+	public synchronized Subscription subscribe(String name, GameEventHandler handler) {
+		
+		Subscription s = new Subscription(name, handler, cursor.get());
+		
+		Subscription[] next = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+		next[next.length - 1] = s;
+		subscriptions = next;
+		
+		s.thread.start();
+		return s;
+	}
+	
+	/**
+	 * Remove subscriber and stop its thread. Events it hasn't handled yet are skipped.
+	 * 
+	 * @param s subscription that is removed
+	 */
+	public synchronized void unsubscribe(Subscription s) {
+		
+		Subscription[] next = new Subscription[subscriptions.length];
+		int count = 0;
+		
+		for(Subscription other : subscriptions) if(other != s) next[count++] = other;
+		
+		subscriptions = Arrays.copyOf(next, count);
+		s.running = false;
+		LockSupport.unpark(s.thread);
+	}
+	
+	/**
+	 * Publish event to all subscribers. Must be called on one thread only.
+	 * 
+	 * @param type type of event
+	 * @param x x-coordinate of tile, columns of board for new game
+	 * @param y y-coordinate of tile, rows of board for new game
+	 * @param value extra value of event
+	 * @return was event published, false if ring was full and event was dropped
+	 */
+	public boolean publish(GameEvent.Type type, int x, int y, int value) {
+		
+		long seq = cursor.get() + 1;
+		long wrap = seq - ring.length; // event that is overwritten
+		
+		if(wrap > gate) { // cached gate is too old, check subscribers again
+			
+			gate = this.minimum(seq - 1);
+			
+			while(wrap > gate) { // slowest subscriber hasn't handled overwritten event
+				
+				if(!blocking) {
+					
+					dropped++;
+					return false;
+				}
+				
+				fullWaits++;
+				Thread.yield();
+				gate = this.minimum(seq - 1);
+			}
+		}
+		
+		ring[(int)seq & mask].set(type, x, y, value, System.nanoTime(), seq);
+		cursor.lazySet(seq); // values of event are visible before new cursor
+		published++;
+		return true;
+	}
+	
+	private long minimum(long limit) { // smallest sequence of subscribers, limit if there are none
+		
+		long min = limit;
+		for(Subscription s : subscriptions) min = Math.min(min, s.sequence.get());
+		return min;
+	}
+	
+	@Override
+	public void tileChanged(int x, int y, State from, State to) { // tile changes of the board
+		
+		if(to == State.REVEALED) this.publish(GameEvent.Type.REVEALED, x, y, 0);
+		else if(to == State.FLAGGED) this.publish(GameEvent.Type.FLAGGED, x, y, 0);
+		else if(from == State.FLAGGED) this.publish(GameEvent.Type.UNFLAGGED, x, y, 0);
+		else if(from == State.REVEALED) this.publish(GameEvent.Type.HIDDEN, x, y, 0);
+	}
+	
+	/**
+	 * Stop all subscriber threads.
+	 */
+	public synchronized void shutdown() {
+		
+		for(Subscription s : subscriptions) {
+			
+			s.running = false;
+			LockSupport.unpark(s.thread);
+		}
+		subscriptions = new Subscription[0];
+	}
+	
+	/**
+	 * Get how many events fit into ring.
+	 * 
+	 * @return capacity of ring
+	 */
+	public int getCapacity() {
+		
+		return ring.length;
+	}
+	/**
+	 * Get how many events have been published.
+	 * 
+	 * @return amount of published events
+	 */
+	public long getPublished() {
+		
+		return published;
+	}
+	/**
+	 * Get how many events have been dropped because slowest subscriber was a whole ring behind.
+	 * 
+	 * @return amount of dropped events
+	 */
+	public long getDropped() {
+		
+		return dropped;
+	}
+	/**
+	 * Get how many times publisher has waited for subscribers, only happens when bus is blocking.
+	 * 
+	 * @return amount of waits
+	 */
+	public long getFullWaits() {
+		
+		return fullWaits;
+	}
+	/**
+	 * Get lag of slowest subscriber.
+	 * 
+	 * @return amount of events slowest subscriber hasn't handled
+	 */
+	public long getMaxLag() {
+		
+		long last = cursor.get();
+		return last - this.minimum(last);
+	}
+	/**
+	 * Check if publisher waits for subscribers when ring is full.
+	 * 
+	 * @return is bus blocking
+	 */
+	public boolean isBlocking() {
+		
+		return blocking;
+	}
+	/**
+	 * Set if publisher waits for subscribers when ring is full. Blocking bus never drops events,
+	 * but slow subscriber slows down the game thread.
+	 * 
+	 * @param blocking should publisher wait
+	 */
+	public void setBlocking(boolean blocking) {
+		
+		this.blocking = blocking;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Frontier of game board: revealed numbered tiles that still have hidden tiles around them.
+ * These are the only tiles that tell anything about hidden tiles, so solver and hints only need to go through them.
+ * <p>
+ * Board updates frontier on every change of tile state, so it is never searched from the whole board.
+ * Frontier is a sparse set of tile indexes (add, remove and contains are O(1), iteration goes only through members),
+ * and every tile has counters of hidden and flagged tiles around it.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#getFrontier()
+ */
+public class Frontier {
+	
+	private Tile[] cells; // tiles of the board with border of sentinel tiles
+	private Adjacency adjacency; // neighbours of every tile
+	
+	private int[] members = new int[64]; // indexes of frontier tiles, first size ones are used
+	private int size = 0; // amount of frontier tiles
+	private int[] position; // position of every tile in members, -1 if tile isn't in frontier
+	private byte[] hidden; // hidden tiles around every tile
+	private byte[] flagged; // flagged tiles around every tile
+	private int hiddenTotal; // hidden tiles in whole board
+	private int flaggedTotal; // flagged tiles in whole board
+	
+	/**
+	 * Start following new board where all tiles are hidden.
+	 * 
+	 * @param cells tiles with border of sentinel tiles, stored row by row
+	 * @param sentinel border tile of the board
+	 * @param adjacency neighbours of every tile
+	 */
+	void reset(Tile[] cells, Tile sentinel, Adjacency adjacency) {
+		
+		this.cells = cells;
+		this.adjacency = adjacency;
+		
+		if(position == null || position.length != cells.length) {
+			
+			position = new int[cells.length];
+			hidden = new byte[cells.length];
+			flagged = new byte[cells.length];
+		}
+		else Arrays.fill(flagged, (byte)0);
+		
+		Arrays.fill(position, -1);
+		size = 0;
+		hiddenTotal = 0;
+		flaggedTotal = 0;
+		
+		for(int c = 0; c < cells.length; c++) { // all tiles are hidden -> every neighbour is hidden
+			
+			hidden[c] = (byte)adjacency.getDegree(c); // border tiles have no neighbours
+			if(cells[c] != sentinel) hiddenTotal++;
+		}
+	}
+	
+	/**
+	 * Update counters and frontier after state of tile has changed. Tile itself and tiles around it can join or leave frontier.
+	 * 
+	 * @param c index of changed tile
+	 * @param from state before change
+	 * @param to state after change
+	 */
+	void changed(int c, State from, State to) {
+		
+		int dHidden = (to == State.HIDDEN ? 1 : 0) - (from == State.HIDDEN ? 1 : 0);
+		int dFlagged = (to == State.FLAGGED ? 1 : 0) - (from == State.FLAGGED ? 1 : 0);
+		
+		hiddenTotal += dHidden;
+		flaggedTotal += dFlagged;
+		
+		int[] list = adjacency.list;
+		int r = adjacency.rowOf(c); // border tiles are never revealed, so they never join frontier
+		int end = adjacency.start[r + 1]; // update can't be inlined everywhere, so bounds are read once
+		
+		for(int i = adjacency.start[r]; i < end; i++) {
+			
+			int n = c + list[i];
+			
+			hidden[n] += dHidden;
+			flagged[n] += dFlagged;
+			if(dHidden != 0) this.update(n);
+		}
+		this.update(c);
+	}
+	
+	private void update(int c) { // add tile to frontier or remove it, based on its state and hidden tiles around it
+		
+		Tile t = cells[c];
+		boolean member = t.getState() == State.REVEALED && hidden[c] > 0 && !t.isMine() && t.getSurround() > 0;
+		
+		if(member && position[c] < 0) { // add to the end
+			
+			if(size == members.length) members = Arrays.copyOf(members, size * 2);
+			position[c] = size;
+			members[size++] = c;
+		}
+		else if(!member && position[c] >= 0) { // move last member into place of removed one
+			
+			int last = members[--size];
+			members[position[c]] = last;
+			position[last] = position[c];
+			position[c] = -1;
+		}
+	}
+	
+	/**
+	 * Get how many tiles frontier has.
+	 * 
+	 * @return amount of frontier tiles
+	 */
+	public int size() {
+		
+		return size;
+	}
+	/**
+	 * Get frontier tile. Order of tiles changes when tiles leave frontier.
+	 * 
+	 * @param i position in frontier, 0 to {@link #size()} - 1
+	 * @return index of tile in cells array
+	 */
+	public int get(int i) {
+		
+		return members[i];
+	}
+	/**
+	 * Check if tile is in frontier.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return is tile in frontier
+	 */
+	public boolean contains(int c) {
+		
+		return position[c] >= 0;
+	}
+	/**
+	 * Get how many hidden (not flagged) tiles surround tile.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return amount of hidden tiles
+	 */
+	public int getHidden(int c) {
+		
+		return hidden[c];
+	}
+	/**
+	 * Get how many flagged tiles surround tile.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return amount of flagged tiles
+	 */
+	public int getFlagged(int c) {
+		
+		return flagged[c];
+	}
+	/**
+	 * Get how many tiles of the whole board are hidden.
+	 * 
+	 * @return amount of hidden tiles
+	 */
+	public int getHiddenTotal() {
+		
+		return hiddenTotal;
+	}
+	/**
+	 * Get how many tiles of the whole board are flagged.
+	 * 
+	 * @return amount of flagged tiles
+	 */
+	public int getFlaggedTotal() {
+		
+		return flaggedTotal;
+	}
+	/**
+	 * Get how many mines are still unflagged around numbered tile: surround value minus flags around it.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return amount of mines among hidden tiles, if flags are correct
+	 */
+	public int getRemaining(int c) {
+		
+		return cells[c].getSurround() - flagged[c];
+	}
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package minesweeper;
+
+/**
+ * Game event that is carried by event bus. Events are created once with the bus and reused,
+ * so handlers must copy values they need later instead of keeping the event.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see EventBus
+ */
+public class GameEvent {
+	
+	/**
+	 * Types of game events.
+	 */
+	public enum Type {
+		REVEALED, // hidden tile was revealed
+		FLAGGED, // hidden tile was flagged
+		UNFLAGGED, // flag was removed from tile
+		HIDDEN, // revealed tile was hidden again (undo)
+		CHORD, // surrounding tiles of revealed tile were revealed
+		EXPLOSION, // mine was revealed by player
+		WIN, // player won the game
+		NEW_GAME // new game was started
+	}
+	
+	private Type type; // type of event
+	private int x; // x-coordinate of tile, columns of board for new game
+	private int y; // y-coordinate of tile, rows of board for new game
+	private int value; // extra value: mines of new game, game time of win in milliseconds
+	private long time; // when event was published in nanoseconds
+	private long sequence; // position of event in stream of all events
+	
+	void set(Type type, int x, int y, int value, long time, long sequence) { // reuse event for next publish
+		
+		this.type = type;
+		this.x = x;
+		this.y = y;
+		this.value = value;
+		this.time = time;
+		this.sequence = sequence;
+	}
+	
+	/**
+	 * Get type of event.
+	 * 
+	 * @return type of event
+	 */
+	public Type getType() {
+		
+		return type;
+	}
+	/**
+	 * Get x-coordinate of tile, or columns of board for new game.
+	 * 
+	 * @return x-coordinate
+	 */
+	public int getX() {
+		
+		return x;
+	}
+	/**
+	 * Get y-coordinate of tile, or rows of board for new game.
+	 * 
+	 * @return y-coordinate
+	 */
+	public int getY() {
+		
+		return y;
+	}
+	/**
+	 * Get extra value of event: mines of new game, game time of win in milliseconds, 0 for other events.
+	 * 
+	 * @return extra value
+	 */
+	public int getValue() {
+		
+		return value;
+	}
+	/**
+	 * Get when event was published.
+	 * 
+	 * @return time from System.nanoTime()
+	 */
+	public long getTime() {
+		
+		return time;
+	}
+	/**
+	 * Get position of event in stream of all events, starts from 0.
+	 * 
+	 * @return sequence number
+	 */
+	public long getSequence() {
+		
+		return sequence;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package minesweeper;
+
+/**
+ * Subscriber of game events. Handler is called on its own thread, in order of events.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see EventBus#subscribe(String, GameEventHandler)
+ */
+public interface GameEventHandler {
+	
+	/**
+	 * Called for every published event. Event is reused after this returns, so it must not be kept.
+	 * 
+	 * @param event published event
+	 * @param endOfBatch is this last event that was available, handler can flush its work here
+	 */
+	void onEvent(GameEvent event, boolean endOfBatch);
+}
\ No newline at end of file
@@ -0,0 +1,657 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Finds a tile to suggest to the player: safe tile if there is one, otherwise tile with the lowest chance of a mine.
+ * <p>
+ * Request takes a snapshot of the frontier on the calling thread (work scales with frontier, not with board size)
+ * and solver runs on a background thread. Solver first uses rules that give certain answers,
+ * after that it counts mine probabilities of frontier areas one area at a time as long as its time budget lasts.
+ * Every better answer is published through an atomic reference, so caller can always take the best answer
+ * so far without waiting for the solver. Answers are kept until board changes.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Frontier
+ * @see TranspositionCache
+ */
+public class HintEngine {
+	
+	private static final int MAX_AREA = 40; // largest frontier area whose probabilities are counted exactly
+	
+	/**
+	 * Suggested tile. Hints are immutable, so they can be shared between threads.
+	 */
+	public static final class Hint {
+		
+		private final int x; // column of tile
+		private final int y; // row of tile
+		private final double risk; // chance that tile has a mine
+		private final boolean exact; // is risk certain (0 or counted from all solutions) instead of estimate
+		private final boolean last; // solver has finished, there won't be better hints for this board
+		private final long hash; // hash of board the hint was made for
+		
+		Hint(int x, int y, double risk, boolean exact, boolean last, long hash) {
+			
+			this.x = x;
+			this.y = y;
+			this.risk = risk;
+			this.exact = exact;
+			this.last = last;
+			this.hash = hash;
+		}
+		
+		/**
+		 * Get column of suggested tile.
+		 * 
+		 * @return x-coordinate of tile
+		 */
+		public int getX() {
+			
+			return x;
+		}
+		/**
+		 * Get row of suggested tile.
+		 * 
+		 * @return y-coordinate of tile
+		 */
+		public int getY() {
+			
+			return y;
+		}
+		/**
+		 * Get chance that suggested tile has a mine.
+		 * 
+		 * @return risk between 0 and 1, 0 for a safe tile
+		 */
+		public double getRisk() {
+			
+			return risk;
+		}
+		/**
+		 * Check if suggested tile is certainly safe.
+		 * 
+		 * @return is tile safe
+		 */
+		public boolean isSafe() {
+			
+			return risk == 0 && exact;
+		}
+		/**
+		 * Check if solver has finished with this board.
+		 * 
+		 * @return is this the last hint for the board
+		 */
+		public boolean isLast() {
+			
+			return last;
+		}
+	}
+	
+	private static class Job { // snapshot of what player sees around the frontier
+		
+		long generation; // job number, newer request cancels older job
+		long hash; // hash of visible board
+		int stride; // width of bordered board
+		int numbers; // frontier tiles
+		int[] cell; // index of every frontier tile
+		int[] remaining; // unflagged mines around every frontier tile
+		int slots; // room for hidden tiles of one frontier tile, most neighbours a tile has
+		int[] hidden; // hidden tiles around every frontier tile, slots per tile
+		int[] hiddenCount; // how many hidden tiles every frontier tile has
+		int hiddenTotal; // hidden tiles in whole board
+		int minesLeft; // mines minus flags
+		int outside = -1; // hidden tile that isn't next to any number, -1 if none was found
+	}
+	
+	private ExecutorService worker; // background thread that runs solver
+	private AtomicLong generation = new AtomicLong(); // number of newest job
+	private AtomicReference<Hint> best = new AtomicReference<Hint>(); // best hint of newest job so far
+	private TranspositionCache<double[]> cache; // probabilities of frontier areas that have been counted before
+	
+	private Tile[][] tiles; // tiles of board that newest job was made from
+	private long hash; // hash of board that newest job was made from
+	private long budget = 200_000_000L; // how long solver can refine one job in nanoseconds
+	
+	/**
+	 * Solver that finds tiles to suggest.
+	 * 
+	 * @param cache cache of area probabilities, can be shared with other solvers
+	 */
+	public HintEngine(TranspositionCache<double[]> cache) {
+		
+		this.cache = cache;
+		
+		worker = Executors.newSingleThreadExecutor(r -> {
+			
+			Thread t = new Thread(r, "hint-solver");
+			t.setDaemon(true); // solver doesn't keep program running
+			return t;
+		});
+	}
+	
+	/**
+	 * Start finding hint for current state of board. Does nothing if the same board hasn't changed since last request.
+	 * Must be called on the thread that changes the board.
+	 * 
+	 * @param board board that needs a hint
+	 */
+	public void request(Board board) {
+		
+		if(board.getTiles() == tiles && board.getHash() == hash && best.get() != null) return; // answer is already known or coming
+		
+		tiles = board.getTiles();
+		hash = board.getHash();
+		
+		Job job = this.snapshot(board);
+		job.generation = generation.incrementAndGet(); // running job sees this and stops
+		best.set(null);
+		
+		worker.execute(() -> this.solve(job));
+	}
+	
+	/**
+	 * Find hint on calling thread and wait until solver has finished or its budget is used.
+	 * Meant for bots that already run on their own thread, the background thread isn't started.
+	 * 
+	 * @param board board that needs a hint
+	 * @return last hint of the board, its x is -1 if there was no tile to suggest
+	 */
+	public Hint find(Board board) {
+		
+		tiles = board.getTiles();
+		hash = board.getHash();
+		
+		Job job = this.snapshot(board);
+		job.generation = generation.incrementAndGet();
+		best.set(null);
+		
+		this.solve(job);
+		return best.get();
+	}
+	/**
+	 * Wait for hint at most given time. Returns immediately when any hint of newest request is ready.
+	 * 
+	 * @param deadline longest wait in nanoseconds
+	 * @return best hint so far, null if solver didn't have any hint in time
+	 */
+	public Hint await(long deadline) {
+		
+		long end = System.nanoTime() + deadline;
+		Hint h = best.get();
+		
+		for(long left = deadline; h == null && left > 0; left = end - System.nanoTime()) {
+			
+			LockSupport.parkNanos(Math.min(left, 50_000)); // check again after 0.05 ms, never past deadline
+			h = best.get();
+		}
+		return h;
+	}
+	
+	/**
+	 * Get best hint so far without waiting.
+	 * 
+	 * @param board board the hint is for
+	 * @return best hint, null if there isn't one or board has changed after request
+	 */
+	public Hint poll(Board board) {
+		
+		Hint h = best.get();
+		return (h != null && board.getTiles() == tiles && board.getHash() == h.hash) ? h : null;
+	}
+	
+	/**
+	 * Check if solver is still refining hint of newest request.
+	 * 
+	 * @return is solver working
+	 */
+	public boolean isRunning() {
+		
+		Hint h = best.get();
+		return tiles != null && (h == null || !h.last);
+	}
+	
+	private Job snapshot(Board board) { // copy numbers of frontier and their hidden neighbours
+		
+		Frontier f = board.getFrontier();
+		Adjacency adjacency = board.getAdjacency();
+		Job j = new Job();
+		
+		j.hash = board.getHash();
+		j.stride = board.getStride();
+		j.numbers = f.size();
+		j.cell = new int[j.numbers];
+		j.remaining = new int[j.numbers];
+		j.slots = adjacency.getMaxDegree();
+		j.hidden = new int[j.numbers * j.slots];
+		j.hiddenCount = new int[j.numbers];
+		j.hiddenTotal = f.getHiddenTotal();
+		j.minesLeft = board.getMines() - f.getFlaggedTotal();
+		
+		for(int i = 0; i < j.numbers; i++) {
+			
+			int c = f.get(i);
+			j.cell[i] = c;
+			j.remaining[i] = f.getRemaining(c);
+			
+			for(int k = adjacency.getStart(c); k < adjacency.getEnd(c); k++) {
+				
+				int n = c + adjacency.getOffset(k);
+				if(board.getCell(n).getState() == State.HIDDEN) j.hidden[i * j.slots + j.hiddenCount[i]++] = n;
+			}
+		}
+		
+		Point size = board.getBoardSize();
+		Random random = new Random(j.hash);
+		
+		for(int tries = 0; tries < 64 && j.outside < 0 && j.hiddenTotal > 0; tries++) { // look for hidden tile away from numbers
+			
+			int c = (random.nextInt(size.y) + 1) * j.stride + random.nextInt(size.x) + 1;
+			if(this.isOutside(board, c, adjacency)) j.outside = c;
+		}
+		
+		if(j.outside < 0 && j.hiddenTotal > 0) { // random tries missed, happens when only few hidden tiles are left -> go through all rows
+			
+			for(int y = 1; y <= size.y && j.outside < 0; y++) {
+				for(int c = y * j.stride + 1; c <= y * j.stride + size.x; c++) {
+					
+					if(this.isOutside(board, c, adjacency)) {
+						
+						j.outside = c;
+						break;
+					}
+				}
+			}
+		}
+		return j;
+	}
+	
+	private boolean isOutside(Board board, int c, Adjacency adjacency) { // is tile hidden and not next to any number
+		
+		if(board.getCell(c).getState() != State.HIDDEN) return false;
+		
+		for(int k = adjacency.getStart(c); k < adjacency.getEnd(c); k++) {
+			
+			Tile t = board.getCell(c + adjacency.getOffset(k));
+			if(t.getState() == State.REVEALED && !t.isMine() && t.getSurround() > 0) return false;
+		}
+		return true;
+	}
+	
+	private void solve(Job j) { // runs on worker thread
+		
+		try {
+			
+			this.run(j);
+		
+		} catch(RuntimeException e) {
+			
+			System.err.println("Hint solver failed.");
+			e.printStackTrace();
+			this.publish(j, -1, 1, false, true);
+		}
+	}
+	
+	private void run(Job j) {
+		
+		long end = System.nanoTime() + budget;
+		
+		// FROM FRONTIER TILES INTO VARIABLES (HIDDEN TILES) AND CONSTRAINTS (NUMBERS)
+		HashMap<Integer, Integer> idOf = new HashMap<Integer, Integer>();
+		int[] varCell = new int[j.numbers * j.slots];
+		int vars = 0;
+		
+		for(int i = 0; i < j.numbers; i++) {
+			for(int k = 0; k < j.hiddenCount[i]; k++) {
+				
+				int c = j.hidden[i * j.slots + k];
+				if(!idOf.containsKey(c)) {
+					
+					idOf.put(c, vars);
+					varCell[vars++] = c;
+				}
+			}
+		}
+		
+		int[][] cons = new int[j.numbers][]; // variables of every constraint
+		int[][] consOf = new int[vars][]; // constraints of every variable
+		int[] consCount = new int[vars];
+		
+		for(int i = 0; i < j.numbers; i++) {
+			
+			cons[i] = new int[j.hiddenCount[i]];
+			for(int k = 0; k < cons[i].length; k++) {
+				
+				int v = idOf.get(j.hidden[i * j.slots + k]);
+				cons[i][k] = v;
+				consCount[v]++;
+			}
+		}
+		for(int v = 0; v < vars; v++) consOf[v] = new int[consCount[v]];
+		Arrays.fill(consCount, 0);
+		for(int i = 0; i < j.numbers; i++) for(int v : cons[i]) consOf[v][consCount[v]++] = i;
+		
+		// CERTAIN ANSWERS FIRST: TRIVIAL RULE AND SUBSET RULE UNTIL NOTHING CHANGES
+		int[] known = new int[vars]; // -1 unknown, 0 safe, 1 mine
+		Arrays.fill(known, -1);
+		boolean changed = true;
+		
+		while(changed && this.current(j)) {
+			
+			changed = false;
+			
+			for(int a = 0; a < j.numbers; a++) {
+				
+				int unknownA = 0;
+				int minesA = j.remaining[a];
+				for(int v : cons[a]) { if(known[v] < 0) unknownA++; else minesA -= known[v]; }
+				
+				if(unknownA == 0) continue;
+				
+				if(minesA == 0 || minesA == unknownA) { // all unknown tiles around number are safe, or all are mines
+					
+					for(int v : cons[a]) if(known[v] < 0) known[v] = (minesA == 0) ? 0 : 1;
+					changed = true;
+					continue;
+				}
+				
+				for(int v : cons[a]) { // compare with numbers that share a tile with this one
+					
+					if(known[v] >= 0) continue;
+					
+					for(int b : consOf[v]) {
+						
+						if(b == a || !this.subset(cons[a], cons[b], known)) continue;
+						
+						int unknownB = 0;
+						int minesB = j.remaining[b];
+						for(int w : cons[b]) { if(known[w] < 0) unknownB++; else minesB -= known[w]; }
+						
+						int restMines = minesB - minesA; // mines in tiles of b that aren't around a
+						int rest = unknownB - unknownA;
+						
+						if(rest > 0 && (restMines == 0 || restMines == rest)) {
+							
+							for(int w : cons[b]) {
+								
+								if(known[w] < 0 && !this.contains(cons[a], w)) known[w] = (restMines == 0) ? 0 : 1;
+							}
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+		
+		for(int v = 0; v < vars; v++) {
+			
+			if(known[v] == 0) { // certain safe tile -> nothing can be better
+				
+				this.publish(j, varCell[v], 0, true, true);
+				return;
+			}
+		}
+		
+		// PROBABILITIES OF FRONTIER AREAS, SMALL AREAS FIRST
+		int knownMines = 0;
+		int unknownVars = 0;
+		for(int v = 0; v < vars; v++) { if(known[v] == 1) knownMines++; if(known[v] < 0) unknownVars++; }
+		
+		int outsideTiles = j.hiddenTotal - vars;
+		double density = (outsideTiles + unknownVars > 0) ? (double)(j.minesLeft - knownMines) / (outsideTiles + unknownVars) : 1;
+		density = Math.round(Math.min(0.99, Math.max(0.01, density)) * 100) / 100.0; // rounded, so cached areas can be reused when density changes a little
+		
+		int bestCell = j.outside;
+		double bestRisk = (j.outside >= 0) ? density : 1; // tile away from numbers has average risk
+		boolean bestExact = false;
+		
+		if(bestCell >= 0) this.publish(j, bestCell, bestRisk, false, false);
+		else if(unknownVars > 0) { // something is better than nothing while probabilities are counted
+			
+			for(int v = 0; v < vars; v++) if(known[v] < 0) { bestCell = varCell[v]; break; }
+			this.publish(j, bestCell, density, false, false);
+		}
+		
+		int[] parent = new int[vars]; // areas: variables joined by shared numbers
+		for(int v = 0; v < vars; v++) parent[v] = v;
+		for(int i = 0; i < j.numbers; i++) { // unknown tiles around same number belong to same area
+			
+			int first = -1;
+			for(int v : cons[i]) if(known[v] < 0) { if(first < 0) first = v; else union(parent, v, first); }
+		}
+		
+		HashMap<Integer, int[]> areas = new HashMap<Integer, int[]>();
+		int[] areaSize = new int[vars];
+		for(int v = 0; v < vars; v++) if(known[v] < 0) areaSize[find(parent, v)]++;
+		for(int v = 0; v < vars; v++) {
+			
+			if(known[v] >= 0) continue;
+			int root = find(parent, v);
+			int[] area = areas.get(root);
+			if(area == null) { area = new int[areaSize[root] + 1]; areas.put(root, area); } // last slot counts filled variables
+			area[area[area.length - 1]++] = v;
+		}
+		
+		int[][] sorted = areas.values().toArray(new int[0][]);
+		Arrays.sort(sorted, (p, q) -> p.length - q.length);
+		
+		for(int[] area : sorted) {
+			
+			if(!this.current(j) || System.nanoTime() > end) break; // newer request or budget used
+			
+			int n = area.length - 1;
+			if(n > MAX_AREA) continue;
+			
+			int[] av = Arrays.copyOf(area, n); // variables were numbered in order of frontier, not in order of cells
+			Integer[] order = new Integer[n];
+			for(int i = 0; i < n; i++) order[i] = av[i];
+			Arrays.sort(order, (p, q) -> varCell[p] - varCell[q]); // same order as cells, so equal areas have equal order
+			for(int i = 0; i < n; i++) av[i] = order[i];
+			
+			long key = this.areaKey(j, av, varCell, cons, consOf, known, density);
+			double[] prob = cache.get(key);
+			
+			if(prob == null) {
+				
+				prob = this.enumerate(j, av, cons, consOf, known, density, end);
+				if(prob == null) break; // ran out of time
+				cache.put(key, prob);
+			}
+			
+			for(int i = 0; i < n; i++) {
+				
+				if(prob[i] < bestRisk || (prob[i] == bestRisk && !bestExact)) {
+					
+					bestRisk = prob[i];
+					bestCell = varCell[av[i]];
+					bestExact = true;
+				}
+			}
+			
+			if(bestRisk == 0) break; // certainly safe tile found by counting
+			this.publish(j, bestCell, bestRisk, bestExact, false);
+		}
+		
+		this.publish(j, bestCell, bestRisk, bestExact || bestRisk == 0, true);
+	}
+	
+	private double[] enumerate(Job j, int[] av, int[][] cons, int[][] consOf, int[] known, double density, long end) { // weighted count of all mine placements of area
+		
+		int n = av.length;
+		int[] assigned = new int[known.length];
+		System.arraycopy(known, 0, assigned, 0, known.length);
+		
+		int[] mines = new int[j.numbers]; // mines placed around every number
+		int[] open = new int[j.numbers]; // unknown tiles left around every number
+		for(int i = 0; i < j.numbers; i++) {
+			
+			mines[i] = 0;
+			for(int v : cons[i]) { if(known[v] == 1) mines[i]++; else if(known[v] < 0) open[i]++; }
+		}
+		
+		double ratio = density / (1 - density); // weight of one more mine compared to one less
+		double[] weightOf = new double[n + 1];
+		weightOf[0] = 1;
+		for(int k = 1; k <= n; k++) weightOf[k] = weightOf[k - 1] * ratio;
+		
+		double[] mineWeight = new double[n];
+		double[] total = new double[1];
+		int[] value = new int[n];
+		int[] steps = new int[1];
+		
+		// depth first search, value[d] is 0 or 1 for variable d, -1 when both have been tried
+		int d = 0;
+		int placed = 0;
+		value[0] = -1;
+		
+		while(d >= 0) {
+			
+			if((++steps[0] & 1023) == 0 && (System.nanoTime() > end || !this.current(j))) return null;
+			
+			if(d == n) { // every variable has a value -> valid placement
+				
+				double w = weightOf[placed];
+				total[0] += w;
+				for(int i = 0; i < n; i++) if(value[i] == 1) mineWeight[i] += w;
+				d--;
+				continue;
+			}
+			
+			int v = av[d];
+			
+			if(value[d] >= 0) { // undo previous value of this variable
+				
+				for(int c : consOf[v]) { open[c]++; if(value[d] == 1) mines[c]--; }
+				if(value[d] == 1) placed--;
+			}
+			
+			if(value[d] == 1) { // both values tried -> back up
+				
+				value[d] = -1;
+				assigned[v] = -1;
+				d--;
+				continue;
+			}
+			
+			value[d]++;
+			assigned[v] = value[d];
+			boolean ok = true;
+			
+			for(int c : consOf[v]) {
+				
+				open[c]--;
+				if(value[d] == 1) mines[c]++;
+				if(mines[c] > j.remaining[c] || mines[c] + open[c] < j.remaining[c]) ok = false;
+			}
+			if(value[d] == 1) placed++;
+			
+			if(ok) {
+				
+				d++;
+				if(d < n) value[d] = -1;
+			}
+		}
+		
+		if(total[0] == 0) return new double[n]; // no valid placement (flags are wrong), nothing to say
+		
+		double[] prob = new double[n];
+		for(int i = 0; i < n; i++) prob[i] = mineWeight[i] / total[0];
+		return prob;
+	}
+	
+	private long areaKey(Job j, int[] av, int[] varCell, int[][] cons, int[][] consOf, int[] known, double density) { // hash of area relative to its first tile
+		
+		int origin = varCell[av[0]];
+		long h = Board.zobrist(av.length, 13) ^ Board.zobrist(j.stride, 14) ^ Board.zobrist(Math.round(density * 100), 15); // weights depend on density
+		
+		for(int v : av) {
+			
+			h ^= Board.zobrist(varCell[v] - origin, 16);
+			
+			for(int c : consOf[v]) { // every number and tile pair, with mines that number still needs
+				
+				int need = j.remaining[c];
+				for(int w : cons[c]) if(known[w] == 1) need--;
+				h ^= Board.zobrist((long)(j.cell[c] - origin) << 32 ^ (varCell[v] - origin & 0xFFFFFFFFL), 17 + need);
+			}
+		}
+		return h;
+	}
+	
+	private boolean subset(int[] a, int[] b, int[] known) { // are unknown variables of a also in b
+		
+		for(int v : a) if(known[v] < 0 && !this.contains(b, v)) return false;
+		return true;
+	}
+	
+	private boolean contains(int[] a, int v) {
+		
+		for(int w : a) if(w == v) return true;
+		return false;
+	}
+	
+	private static int find(int[] parent, int v) { // root of variable, halves path on the way
+		
+		while(parent[v] != v) {
+			
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+	
+	private static void union(int[] parent, int a, int b) {
+		
+		parent[find(parent, a)] = find(parent, b);
+	}
+	
+	private boolean current(Job j) { // is job still the newest one
+		
+		return generation.get() == j.generation;
+	}
+	
+	private void publish(Job j, int c, double risk, boolean exact, boolean last) { // share hint if job is still the newest one
+		
+		if(!this.current(j)) return;
+		
+		int x = (c >= 0) ? c % j.stride - 1 : -1;
+		int y = (c >= 0) ? c / j.stride - 1 : -1;
+		best.set(new Hint(x, y, risk, exact, last, j.hash));
+	}
+	
+	/**
+	 * Stop solver thread.
+	 */
+	public void shutdown() {
+		
+		generation.incrementAndGet(); // running job stops
+		worker.shutdownNow();
+	}
+	/**
+	 * Get how long solver can refine one hint.
+	 * 
+	 * @return time budget in nanoseconds
+	 */
+	public long getBudget() {
+		
+		return budget;
+	}
+	/**
+	 * Set how long solver can refine one hint, after that best hint so far is the last one.
+	 * 
+	 * @param budget time budget in nanoseconds
+	 */
+	public void setBudget(long budget) {
+		
+		this.budget = budget;
+	}
+}
\ No newline at end of file
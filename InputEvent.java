@@ -0,0 +1,186 @@
+package minesweeper;
+
+/**
+ * Holds information of single mouse or keyboard input waiting in {@link InputQueue}.
+ * Objects are reused by the queue, so they shouldn't be stored after they have been handled.
+ * 
+ * @author Tuomas Rautanen
+ */
+public class InputEvent {
+	
+	/**
+	 * Type of input
+	 * <li>{@link #MOUSE}</li>
+	 * <li>{@link #KEY}</li>
+	 */
+	public enum Type {
+		/**
+		 * Mouse button was pressed
+		 */
+		MOUSE,
+		/**
+		 * Keyboard key was pressed
+		 */
+		KEY
+	}
+	
+	private Type type; // type of input
+	private int x; // mouse x-coordinate in pixels
+	private int y; // mouse y-coordinate in pixels
+	private int button; // mouse button that was pressed
+	private int tile; // index of tile under the mouse (row * columns + column), -1 if outside of the board
+	private char key; // key that was pressed
+	private int keyCode; // key code of pressed key
+	private int count; // how many identical presses this event stands for (coalesced presses)
+	private long time; // System.nanoTime() when input happened
+	
+	/**
+	 * Set event to describe mouse press.
+	 * 
+	 * @param x mouse x-coordinate in pixels
+	 * @param y mouse y-coordinate in pixels
+	 * @param button mouse button that was pressed
+	 * @param tile index of tile under the mouse, -1 if outside of the board
+	 * @param time System.nanoTime() when input happened
+	 */
+	public void setMouse(int x, int y, int button, int tile, long time) {
+		
+		this.type = Type.MOUSE;
+		this.x = x;
+		this.y = y;
+		this.button = button;
+		this.tile = tile;
+		this.key = 0;
+		this.keyCode = 0;
+		this.count = 1;
+		this.time = time;
+	}
+	
+	/**
+	 * Set event to describe key press.
+	 * 
+	 * @param key key that was pressed
+	 * @param keyCode key code of pressed key
+	 * @param time System.nanoTime() when input happened
+	 */
+	public void setKey(char key, int keyCode, long time) {
+		
+		this.type = Type.KEY;
+		this.x = 0;
+		this.y = 0;
+		this.button = 0;
+		this.tile = -1;
+		this.key = key;
+		this.keyCode = keyCode;
+		this.count = 1;
+		this.time = time;
+	}
+	
+	/**
+	 * Copy all values of given event into this event.
+	 * 
+	 * @param e event to be copied
+	 */
+	public void copy(InputEvent e) {
+		
+		this.type = e.type;
+		this.x = e.x;
+		this.y = e.y;
+		this.button = e.button;
+		this.tile = e.tile;
+		this.key = e.key;
+		this.keyCode = e.keyCode;
+		this.count = e.count;
+		this.time = e.time;
+	}
+	/**
+	 * Get type of input.
+	 * 
+	 * @return type of input
+	 */
+	public Type getType() {
+		
+		return type;
+	}
+	/**
+	 * Get mouse x-coordinate in pixels.
+	 * 
+	 * @return mouse x-coordinate
+	 */
+	public int getX() {
+		
+		return x;
+	}
+	/**
+	 * Get mouse y-coordinate in pixels.
+	 * 
+	 * @return mouse y-coordinate
+	 */
+	public int getY() {
+		
+		return y;
+	}
+	/**
+	 * Get mouse button that was pressed.
+	 * 
+	 * @return mouse button
+	 */
+	public int getButton() {
+		
+		return button;
+	}
+	/**
+	 * Get index of tile under the mouse (row * columns + column).
+	 * 
+	 * @return index of tile, -1 if mouse was outside of the board
+	 */
+	public int getTile() {
+		
+		return tile;
+	}
+	/**
+	 * Get key that was pressed.
+	 * 
+	 * @return pressed key
+	 */
+	public char getKey() {
+		
+		return key;
+	}
+	/**
+	 * Get key code of pressed key.
+	 * 
+	 * @return key code
+	 */
+	public int getKeyCode() {
+		
+		return keyCode;
+	}
+	/**
+	 * Get how many identical presses this event stands for.
+	 * 
+	 * @return count of coalesced presses
+	 */
+	public int getCount() {
+		
+		return count;
+	}
+	/**
+	 * Set how many identical presses this event stands for.
+	 * 
+	 * @param count count of coalesced presses
+	 */
+	public void setCount(int count) {
+		
+		this.count = count;
+	}
+	/**
+	 * Get time when input happened.
+	 * 
+	 * @return System.nanoTime() when input happened
+	 */
+	public long getTime() {
+		
+		return time;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,229 @@
+package minesweeper;
+
+import processing.core.PConstants;
+
+/**
+ * Bounded queue for mouse and keyboard input. Input callbacks add events into the queue
+ * and game logic drains it at frame boundary, so slow game logic doesn't happen inside input callbacks.
+ * <p>
+ * Repeated right clicks on same tile are coalesced into one event that knows how many presses it stands for.
+ * Queue also tracks its depth and latency from input to handled game state.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see InputEvent
+ */
+public class InputQueue {
+	
+	private InputEvent[] events; // ring buffer of reusable events
+	private int head = 0; // index of oldest event in ring buffer
+	private int size = 0; // how many events are waiting in queue
+	
+	private int peakDepth = 0; // largest amount of events that have been waiting at once
+	private long dropped = 0; // events dropped because queue was full
+	private long coalesced = 0; // events merged into already waiting event
+	
+	private long handled = 0; // events that game logic has handled
+	private long lastLatency = 0; // latency of last handled event in nanoseconds
+	private long maxLatency = 0; // largest latency in nanoseconds
+	private long totalLatency = 0; // sum of all latencies in nanoseconds
+	
+	/**
+	 * Bounded queue for mouse and keyboard input.
+	 * 
+	 * @param capacity how many events can wait in queue at once
+	 */
+	public InputQueue(int capacity) {
+		
+		events = new InputEvent[capacity];
+		
+		for(int i = 0; i < capacity; i++) { // create all events beforehand, they are reused
+			events[i] = new InputEvent();
+		}
+	}
+	
+	/**
+	 * Add mouse press into queue. Right click on same tile as newest waiting right click is merged into it.
+	 * 
+	 * @param x mouse x-coordinate in pixels
+	 * @param y mouse y-coordinate in pixels
+	 * @param button mouse button that was pressed
+	 * @param tile index of tile under the mouse, -1 if outside of the board
+	 * 
+	 * @return was event added (or merged) into queue, false if queue was full
+	 */
+	public synchronized boolean offerMouse(int x, int y, int button, int tile) {
+		
+		if(size > 0 && button == PConstants.RIGHT && tile >= 0) { // try to merge flag toggle into newest waiting event
+			
+			InputEvent last = events[(head + size - 1) % events.length];
+			
+			if(last.getType() == InputEvent.Type.MOUSE && last.getButton() == PConstants.RIGHT && last.getTile() == tile) {
+				
+				last.setCount(last.getCount() + 1); // same tile toggled again -> only count it
+				coalesced++;
+				return true;
+			}
+		}
+		
+		if(size == events.length) { // queue is full -> drop event
+			
+			dropped++;
+			return false;
+		}
+		
+		events[(head + size) % events.length].setMouse(x, y, button, tile, System.nanoTime());
+		this.grow();
+		return true;
+	}
+	
+	/**
+	 * Add key press into queue.
+	 * 
+	 * @param key key that was pressed
+	 * @param keyCode key code of pressed key
+	 * 
+	 * @return was event added into queue, false if queue was full
+	 */
+	public synchronized boolean offerKey(char key, int keyCode) {
+		
+		if(size == events.length) { // queue is full -> drop event
+			
+			dropped++;
+			return false;
+		}
+		
+		events[(head + size) % events.length].setKey(key, keyCode, System.nanoTime());
+		this.grow();
+		return true;
+	}
+	
+	/**
+	 * Take oldest event from queue. Event is copied into given event, so queue can reuse its own events.
+	 * 
+	 * @param out event where oldest event is copied to
+	 * 
+	 * @return was there an event in queue
+	 */
+	public synchronized boolean poll(InputEvent out) {
+		
+		if(size == 0) return false;
+		
+		out.copy(events[head]);
+		head = (head + 1) % events.length;
+		size--;
+		return true;
+	}
+	
+	/**
+	 * Mark event handled and record latency from input to updated game state.
+	 * 
+	 * @param e event that was handled
+	 */
+	public synchronized void handled(InputEvent e) {
+		
+		long latency = System.nanoTime() - e.getTime();
+		
+		handled++;
+		lastLatency = latency;
+		totalLatency += latency;
+		if(latency > maxLatency) maxLatency = latency;
+	}
+	
+	/**
+	 * Remove all waiting events.
+	 */
+	public synchronized void clear() {
+		
+		head = 0;
+		size = 0;
+	}
+	
+	private void grow() { // increase size and track peak depth
+		
+		size++;
+		if(size > peakDepth) peakDepth = size;
+	}
+	
+	/**
+	 * Get how many events are waiting in queue.
+	 * 
+	 * @return current queue depth
+	 */
+	public synchronized int getDepth() {
+		
+		return size;
+	}
+	/**
+	 * Get largest amount of events that have been waiting in queue at once.
+	 * 
+	 * @return peak queue depth
+	 */
+	public synchronized int getPeakDepth() {
+		
+		return peakDepth;
+	}
+	/**
+	 * Get how many events can wait in queue at once.
+	 * 
+	 * @return queue capacity
+	 */
+	public int getCapacity() {
+		
+		return events.length;
+	}
+	/**
+	 * Get how many events have been dropped because queue was full.
+	 * 
+	 * @return amount of dropped events
+	 */
+	public synchronized long getDropped() {
+		
+		return dropped;
+	}
+	/**
+	 * Get how many events have been merged into already waiting event.
+	 * 
+	 * @return amount of coalesced events
+	 */
+	public synchronized long getCoalesced() {
+		
+		return coalesced;
+	}
+	/**
+	 * Get how many events game logic has handled.
+	 * 
+	 * @return amount of handled events
+	 */
+	public synchronized long getHandled() {
+		
+		return handled;
+	}
+	/**
+	 * Get latency from input to updated game state of last handled event.
+	 * 
+	 * @return latency in nanoseconds
+	 */
+	public synchronized long getLastLatency() {
+		
+		return lastLatency;
+	}
+	/**
+	 * Get largest latency from input to updated game state.
+	 * 
+	 * @return latency in nanoseconds
+	 */
+	public synchronized long getMaxLatency() {
+		
+		return maxLatency;
+	}
+	/**
+	 * Get average latency from input to updated game state.
+	 * 
+	 * @return latency in nanoseconds, 0 if no events have been handled
+	 */
+	public synchronized long getAverageLatency() {
+		
+		return handled > 0 ? totalLatency / handled : 0;
+	}
+}
\ No newline at end of file
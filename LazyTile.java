@@ -0,0 +1,40 @@
+package minesweeper;
+
+import java.awt.Point;
+
+/**
+ * Tile that counts its surround value only when it is asked for the first time.
+ * Until then surround value is {@link Tile#NOT_COMPUTED}.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#setLazySurround(boolean)
+ */
+public class LazyTile extends Tile {
+	
+	private Board board; // board that counts surround value
+	private int c; // index of tile in cells array of board
+	
+	/**
+	 * Tile that counts its surround value only when it is asked for the first time.
+	 * 
+	 * @param position position of tile in board (column, row)
+	 * @param resolution width and height of tile in pixels
+	 * @param board board that counts surround value
+	 * @param c index of tile in cells array of board
+	 */
+	public LazyTile(Point position, Point resolution, Board board, int c) {
+		
+		super(position, resolution);
+		this.board = board;
+		this.c = c;
+		this.setSurround(NOT_COMPUTED);
+	}
+	
+	@Override
+	public int getSurround() {
+		
+		int s = super.getSurround();
+		return (s == NOT_COMPUTED) ? board.computeSurround(c) : s; // count and cache on first access
+	}
+}
\ No newline at end of file
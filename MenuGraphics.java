@@ -4,6 +4,7 @@ import java.util.ArrayList;
 
 import processing.core.PApplet;
 import processing.core.PConstants;
+import processing.core.PImage;
 
 /**
  * Renders menu related graphics to PApplet frame.
@@ -15,6 +16,7 @@ public class MenuGraphics {
 	private PApplet p; // parent PApplet which we draw stuff into
 	private ArrayList<Button> buttons; // List of buttons in menu
 	private int tSize; 
+	private PImage minimap; // pixels of minimap, reused between frames
 	
 	/**
 	 * Renders menu related graphics to PApplet frame.
@@ -57,8 +59,9 @@ public class MenuGraphics {
 	 */
 	public void drawButtons() {
 		
-		for(Button el : buttons) {
+		for(int i = 0; i < buttons.size(); i++) { // index loop, so drawing doesn't create an iterator every frame
 			
+			Button el = buttons.get(i);
 			int[] color = el.getColor(); // get buttons color
 			
 			p.strokeWeight(2); // set outer stroke lenght
@@ -144,6 +147,89 @@ public class MenuGraphics {
 		p.text(text, pos[0], pos[1], pos[2], pos[3]); // draw text at given position with previously determined color
 		
 	}
+	/**
+	 * Draw minimap of the board. Every pixel is one lookup from count pyramid: color is mix of hidden, revealed and flagged colors
+	 * by how many tiles under the pixel have each state.
+	 * 
+	 * @param pyramid state counts of the board
+	 * @param pos position and size of minimap in pixels (x, y, width, height)
+	 * 
+	 * @see CountPyramid
+	 */
+	public void drawMinimap(CountPyramid pyramid, int[] pos) {
+		
+		int w = pos[2];
+		int h = pos[3];
+		
+		if(minimap == null || minimap.width != w || minimap.height != h) minimap = p.createImage(w, h, PConstants.RGB);
+		
+		int columns = pyramid.getColumns();
+		int rows = pyramid.getRows();
+		int k = 1; // smallest level where one block covers at least one pixel
+		while(k < pyramid.getLevels() && ((1 << k) * w < columns || (1 << k) * h < rows)) k++;
+		
+		minimap.loadPixels();
+		
+		for(int py = 0; py < h; py++) {
+			
+			int by = (int)((long)py * rows / h) >> k;
+			
+			for(int px = 0; px < w; px++) {
+				
+				int bx = (int)((long)px * columns / w) >> k;
+				
+				int hidden = pyramid.getCount(k, bx, by, CountPyramid.HIDDEN);
+				int revealed = pyramid.getCount(k, bx, by, CountPyramid.REVEALED);
+				int flagged = pyramid.getCount(k, bx, by, CountPyramid.FLAGGED);
+				int total = Math.max(1, hidden + revealed + flagged);
+				
+				// mix of hidden (220,220,220), revealed (20,20,20) and flagged (200,0,10) colors
+				int r = (hidden * 220 + revealed * 20 + flagged * 200) / total;
+				int g = (hidden * 220 + revealed * 20) / total;
+				int b = (hidden * 220 + revealed * 20 + flagged * 10) / total;
+				
+				minimap.pixels[py * w + px] = 0xFF000000 | r << 16 | g << 8 | b;
+			}
+		}
+		
+		minimap.updatePixels();
+		p.image(minimap, pos[0], pos[1]);
+	}
+	/**
+	 * Draw outline around tile, used to show hint to player.
+	 * 
+	 * @param pos position and size of tile in pixels (x, y, width, height)
+	 * @param color color of outline as RGB
+	 * 
+	 * @see HintEngine
+	 */
+	public void drawOutline(int[] pos, int[] color) {
+		
+		p.noFill();
+		p.strokeWeight(Math.max(1, Math.min(pos[2], pos[3]) / 8)); // thin outline for small tiles
+		p.stroke(color[0], color[1], color[2]);
+		p.rect(pos[0], pos[1], pos[2], pos[3]);
+		p.noStroke();
+	}
+	/**
+	 * Draw placeholder with text in the middle, shown in place of something that is still loading.
+	 * 
+	 * @param text text to be drawn
+	 * @param pos position and size of placeholder in pixels (x, y, width, height)
+	 * 
+	 * @see Startup
+	 */
+	public void drawPlaceholder(String text, int[] pos) {
+		
+		p.noStroke();
+		p.fill(40); // a bit lighter than background
+		p.rect(pos[0], pos[1], pos[2], pos[3]);
+		
+		p.fill(160);
+		p.textAlign(PConstants.CENTER, PConstants.CENTER);
+		p.textSize(tSize);
+		p.text(text, pos[0] + pos[2] / 2, pos[1] + pos[3] / 2);
+	}
 	/**
 	 * Add button to list of buttons
 	 * 
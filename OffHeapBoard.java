@@ -0,0 +1,549 @@
+package minesweeper;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Game board for boards too big for {@link Board}. Every tile is packed into one byte that is stored outside of Java heap
+ * (in direct or file mapped buffers), so board can have more than 2^31 tiles and its size doesn't show in heap usage or GC time.
+ * <p>
+ * Tile byte format: bits 0-3 surround value (15 = no value), bit 4 mine, bits 5-6 ordinal of {@link State}.
+ * Like {@link Board}, tiles are stored row by row with one tile wide border of sentinel tiles, so neighbours are found with index offsets.
+ * <p>
+ * Board owns its memory until {@link #close()} is called: direct and mapped buffers are freed right away instead of waiting for GC
+ * to find them, after that board can't be used. If the running JVM doesn't let buffers be freed, close only drops them and
+ * memory is returned when GC collects them (this is told on standard error once).
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board
+ */
+public class OffHeapBoard implements AutoCloseable {
+	
+	private static final int CHUNK_BITS = 30; // one buffer holds 2^30 tiles (1 GiB)
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+	private static final int STACK_CHUNK = 1 << 20; // one stack buffer holds 2^20 indexes (8 MiB)
+	
+	private static final int SURROUND = 0x0F; // bits of surround value
+	private static final int NO_SURROUND = 0x0F; // surround value of mines and sentinel tiles
+	private static final int MINE = 0x10; // bit of mine
+	private static final int STATE_SHIFT = 5; // position of state bits
+	private static final int STATE = 0x60; // bits of state
+	
+	private static final State[] STATES = State.values(); // states by ordinal
+	private static final byte SENTINEL = (byte)((State.NONE.ordinal() << STATE_SHIFT) | NO_SURROUND); // border tile: never a mine, never hidden
+	private static final byte HIDDEN = (byte)((State.HIDDEN.ordinal() << STATE_SHIFT) | NO_SURROUND); // initial tile
+	
+	// directions to surrounding tiles (column, row), four first ones are vertical and horizontal neighbours
+	private static final int[][] DIRECTIONS = {{0,-1}, {-1,0}, {1,0}, {0,1}, {-1,-1}, {1,-1}, {-1,1}, {1,1}};
+	
+	private long columns; // board width in tiles
+	private long rows; // board height in tiles
+	private long mines; // mine count in game board
+	private long stride; // width of bordered board in tiles (columns + 2)
+	private long[] neighbours; // index offsets from tile to its eight surrounding tiles
+	
+	private ByteBuffer[] cells; // packed tiles split into chunks
+	private FileChannel file; // file backing the tiles, null if tiles are only in memory
+	private ArrayList<ByteBuffer> stack = new ArrayList<ByteBuffer>(); // off-heap queue for revealing empty tiles, chunks are kept for reuse
+	
+	private static boolean freeFailed = false; // has freeing buffers failed, so that it is told only once
+	
+	private long hidden; // how many tiles are hidden
+	private long wrongFlags; // how many tiles without mines are flagged
+	
+	/**
+	 * Game board that stores its tiles in memory outside of Java heap.
+	 * 
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param mines mine count in game board
+	 */
+	public OffHeapBoard(long columns, long rows, long mines) {
+		
+		this.init(columns, rows, mines);
+		
+		long size = stride * (rows + 2);
+		cells = new ByteBuffer[(int)((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		
+		for(int i = 0; i < cells.length; i++) { // allocate chunks, last one only as big as needed
+			cells[i] = ByteBuffer.allocateDirect((int)Math.min(CHUNK_MASK + 1, size - ((long)i << CHUNK_BITS)));
+		}
+	}
+	
+	/**
+	 * Game board that stores its tiles in given file, so board can be bigger than available memory.
+	 * 
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param mines mine count in game board
+	 * @param path file where tiles are stored, created if it doesn't exist. Existing file of the same board size continues
+	 * the game saved in it (win counters are counted again from its tiles), new or smaller file starts with all tiles hidden and no mines.
+	 * 
+	 * @throws IOException file couldn't be opened or mapped
+	 */
+	public OffHeapBoard(long columns, long rows, long mines, Path path) throws IOException {
+		
+		this.init(columns, rows, mines);
+		
+		long size = stride * (rows + 2);
+		file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		boolean saved = file.size() >= size; // file has tiles of earlier game, mapping a smaller file fills it with zero bytes
+		cells = new ByteBuffer[(int)((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		
+		for(int i = 0; i < cells.length; i++) { // map chunks of the file, last one only as big as needed
+			
+			long start = (long)i << CHUNK_BITS;
+			cells[i] = file.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_MASK + 1, size - start));
+		}
+		
+		if(saved) this.countStates();
+		else this.clear(); // zero bytes would be revealed empty tiles, that would look like a won game
+	}
+	
+	private void clear() { // border as sentinel tiles, others hidden without mines
+		
+		for(long y = 0; y < rows + 2; y++) {
+			for(long x = 0; x < stride; x++) {
+				
+				this.set(y * stride + x, (y == 0 || y == rows + 1 || x == 0 || x == stride - 1) ? SENTINEL : HIDDEN);
+			}
+		}
+		
+		hidden = columns * rows;
+		wrongFlags = 0;
+	}
+	
+	private void countStates() { // count win counters from tiles, used when tiles come from a saved file
+		
+		hidden = 0;
+		wrongFlags = 0;
+		
+		for(long y = 0; y < rows; y++) {
+			for(long x = 0; x < columns; x++) {
+				
+				int b = this.get(this.index(x, y));
+				
+				if(state(b) == State.HIDDEN) hidden++;
+				if(state(b) == State.FLAGGED && (b & MINE) == 0) wrongFlags++;
+			}
+		}
+	}
+	
+	private void init(long columns, long rows, long mines) { // set board size and neighbour offsets
+		
+		this.columns = columns;
+		this.rows = rows;
+		this.stride = columns + 2;
+		
+		if(mines < columns * rows) { // check mine count is less than amount of tiles
+			
+			this.mines = mines;
+		
+		} else { // if mine count exceeds tile count, set mine count to 90% of tiles
+			
+			System.err.println("Mine count exceeded tile count >> Set: Mine count = 0.9 * tile count");
+			this.mines = (long)(0.9 * columns * rows);
+		}
+		
+		neighbours = new long[DIRECTIONS.length];
+		
+		for(int i = 0; i < DIRECTIONS.length; i++) { // convert directions into index offsets
+			neighbours[i] = DIRECTIONS[i][1] * stride + DIRECTIONS[i][0];
+		}
+	}
+	
+	/**
+	 * Hide all tiles and randomize mine locations in the board.
+	 */
+	public void randomize() {
+		
+		this.randomize(ThreadLocalRandom.current().nextLong()); // new random seed for every game
+	}
+	
+	/**
+	 * Hide all tiles and randomize mine locations in the board using given seed.
+	 * Boards with less than 2^31 tiles get same mine locations as {@link Board#randomize(int, int, long)} with same seed and size.
+	 * 
+	 * @param seed seed for random mine locations
+	 */
+	public void randomize(long seed) {
+		
+		this.clear(); // initialise tiles: border as sentinel tiles, others as hidden
+		
+		Random random = new Random(seed);
+		long tiles = columns * rows;
+		long placed = 0;
+		
+		while(placed < mines) { // randomize mine locations, skip tiles that already have a mine
+			
+			long pos = (tiles <= Integer.MAX_VALUE) ? random.nextInt((int)tiles) : (random.nextLong() >>> 1) % tiles; // same numbers as Board when they fit
+			long c = this.index(pos % columns, pos / columns);
+			
+			if((this.get(c) & MINE) == 0) {
+				
+				this.set(c, (byte)(this.get(c) | MINE));
+				placed++;
+			}
+		}
+	}
+	
+	/**
+	 * Check and set how many mines surround each tile in game board.
+	 */
+	public void setSurroundAll() {
+		
+		for(long y = 0; y < rows; y++) {
+			for(long x = 0; x < columns; x++) {
+				
+				long c = this.index(x, y);
+				int b = this.get(c);
+				
+				if((b & MINE) == 0) this.set(c, (byte)((b & ~SURROUND) | this.countMines(c))); // save surround value of non mine tiles
+			}
+		}
+	}
+	
+	/**
+	 * Checks for how many mines surround tile at given position
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return count of mines surrounding the given tile
+	 */
+	public int findSurrounding(long x, long y) {
+		
+		return this.countMines(this.index(x, y));
+	}
+	
+	private int countMines(long c) { // count mines surrounding tile at index, border tiles are never mines
+		
+		int count = 0;
+		
+		for(long offset : neighbours) {
+			
+			count += (this.get(c + offset) & MINE) >>> 4;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Reveals all neighbouring empty tiles.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @see Board#revealEmpty(int, int)
+	 */
+	public void revealEmpty(long x, long y) {
+		
+		this.revealEmpty(this.index(x, y));
+	}
+	
+	private void revealEmpty(long start) { // reveal empty tiles starting from index
+		
+		this.setState(start, State.REVEALED); // set initial tile as revealed
+		
+		long size = 0; // how many tiles are in queue
+		this.push(size++, start);
+		
+		while(size > 0) { // loop until no connected empty tiles remain
+			
+			long temp = this.peek(--size); // remove this tile from queue (it is now "visited")
+			
+			for(int i = 0; i < 4; i++) { // check for vertical and horizontal neighbours
+				
+				long c = temp + neighbours[i];
+				int b = this.get(c);
+				
+				// if tile is hidden and is empty -> reveal it and add it into queue (border tiles are never hidden)
+				if((b & SURROUND) == 0 && (b & MINE) == 0 && state(b) == State.HIDDEN) {
+					
+					this.setState(c, State.REVEALED);
+					this.push(size++, c);
+				}
+			}
+			for(long offset : neighbours) { // reveal edge tiles (non empty ones)
+				
+				int b = this.get(temp + offset);
+				
+				// checks if tile is hidden and isn't empty -> reveal it
+				if((b & SURROUND) > 0 && (b & SURROUND) != NO_SURROUND && state(b) == State.HIDDEN) {
+					
+					this.setState(temp + offset, State.REVEALED);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reveal all surrounding tiles at given position, if there is non flagged tile containing a mine return gameover boolean.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @return true if no gameover happened, false if there was non flagged mine
+	 * 
+	 * @see Board#revealSurround(int, int)
+	 */
+	public boolean revealSurround(long x, long y) {
+		
+		long c = this.index(x, y);
+		
+		for(long offset : neighbours) { // check if there is any surrounding tiles that were mines and weren't flagged
+			
+			int b = this.get(c + offset);
+			if((b & MINE) != 0 && state(b) != State.FLAGGED) return false;
+		}
+		
+		for(long offset : neighbours) { // no unflagged mines were found -> reveal all surrounding tiles
+			
+			int b = this.get(c + offset);
+			
+			if(state(b) == State.HIDDEN) this.setState(c + offset, State.REVEALED); // reveal tile if it is hidden
+			if((b & SURROUND) == 0 && (b & MINE) == 0) this.revealEmpty(c + offset);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Flag all surrounding tiles at given position if surrounding hidden tiles plus flagged tiles equal to tiles surround value.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @see Board#flagSurround(int, int)
+	 */
+	public void flagSurround(long x, long y) {
+		
+		long c = this.index(x, y);
+		int count = 0;
+		
+		for(long offset : neighbours) { // counts how many hidden tiles and flagged tiles surround given tile
+			
+			State s = state(this.get(c + offset));
+			count += (s == State.HIDDEN || s == State.FLAGGED) ? 1 : 0;
+		}
+		if(count == this.getSurround(x, y)) { // flag tiles only if count of hidden tiles + flagged tiles is equal to mine amount
+			
+			for(long offset : neighbours) {
+				
+				if(state(this.get(c + offset)) == State.HIDDEN) this.setState(c + offset, State.FLAGGED);
+			}
+		}
+	}
+	
+	/**
+	 * Check if player has won the current game. Counters are kept up to date on every change, so this doesn't scan the board.
+	 * 
+	 * @return has player won the game
+	 */
+	public boolean gameWin() {
+		
+		return hidden == 0 && wrongFlags == 0; // no hidden tiles and player hasn't flagged tiles without mines
+	}
+	
+	/**
+	 * Get state of tile at given position.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return state of tile
+	 */
+	public State getState(long x, long y) {
+		
+		return state(this.get(this.index(x, y)));
+	}
+	
+	/**
+	 * Set state of tile at given position.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @param state state of tile
+	 */
+	public void setTileState(long x, long y, State state) {
+		
+		this.setState(this.index(x, y), state);
+	}
+	
+	/**
+	 * Check if tile at given position contains a mine.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return does tile contain a mine
+	 */
+	public boolean isMine(long x, long y) {
+		
+		return (this.get(this.index(x, y)) & MINE) != 0;
+	}
+	
+	/**
+	 * Get how many mines surround tile at given position.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return amount of mines, -1 if tile is a mine or surround values haven't been set
+	 */
+	public int getSurround(long x, long y) {
+		
+		int s = this.get(this.index(x, y)) & SURROUND;
+		return s == NO_SURROUND ? -1 : s;
+	}
+	
+	/**
+	 * Write file backed tiles to disk and free memory of the board (unmap the file).
+	 * Board can't be used after this, its methods throw {@link IllegalStateException}.
+	 * 
+	 * @throws IOException file couldn't be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		
+		if(cells == null) return; // already closed
+		
+		if(file != null) {
+			
+			for(ByteBuffer b : cells) ((MappedByteBuffer)b).force(); // make sure file has all changes
+			file.close();
+			file = null;
+		}
+		
+		ByteBuffer[] freed = cells;
+		cells = null; // board can't reach freed memory anymore, using it after close throws IllegalStateException instead of crashing the JVM
+		
+		for(ByteBuffer b : freed) free(b);
+		for(ByteBuffer b : stack) free(b);
+		stack.clear();
+	}
+	
+	private static void free(ByteBuffer b) { // free memory of direct or mapped buffer now, buffer must not be used after this
+		
+		try {
+			
+			try { // Java 9 and newer: Unsafe.invokeCleaner
+				
+				Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafe.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafe.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), b);
+			
+			} catch(NoSuchMethodException e) { // Java 8: cleaner of the buffer
+				
+				Method cleaner = b.getClass().getMethod("cleaner");
+				cleaner.setAccessible(true);
+				Object c = cleaner.invoke(b);
+				if(c != null) c.getClass().getMethod("clean").invoke(c);
+			}
+		
+		} catch(ReflectiveOperationException | RuntimeException e) { // not allowed on this JVM, GC frees buffer when it finds it
+			
+			if(!freeFailed) {
+				
+				System.err.println("Couldn't free off-heap board memory right away, it is freed by GC.");
+				e.printStackTrace();
+				freeFailed = true;
+			}
+		}
+	}
+	
+	private void setState(long c, State s) { // set state of tile at index and keep win counters up to date
+		
+		int b = this.get(c);
+		State old = state(b);
+		
+		if(old == State.HIDDEN) hidden--;
+		if(s == State.HIDDEN) hidden++;
+		
+		if((b & MINE) == 0) { // flag on tile without mine
+			
+			if(old == State.FLAGGED) wrongFlags--;
+			if(s == State.FLAGGED) wrongFlags++;
+		}
+		
+		this.set(c, (byte)((b & ~STATE) | (s.ordinal() << STATE_SHIFT)));
+	}
+	
+	private static State state(int b) { // unpack state from tile byte
+		
+		return STATES[(b & STATE) >>> STATE_SHIFT];
+	}
+	
+	private long index(long x, long y) { // index of tile in bordered board
+		
+		return (y + 1) * stride + x + 1;
+	}
+	
+	private int get(long c) { // read tile byte at index
+		
+		return this.chunk(c).get((int)(c & CHUNK_MASK));
+	}
+	
+	private void set(long c, byte b) { // write tile byte at index
+		
+		this.chunk(c).put((int)(c & CHUNK_MASK), b);
+	}
+	
+	private ByteBuffer chunk(long c) { // buffer that has tile at index, every tile access goes through here
+		
+		if(cells == null) throw new IllegalStateException("Board has been closed, its memory is freed");
+		return cells[(int)(c >>> CHUNK_BITS)];
+	}
+	
+	private void push(long i, long c) { // write index into position i of reveal queue, allocate more room if needed
+		
+		int chunk = (int)(i / STACK_CHUNK);
+		
+		if(chunk == stack.size()) {
+			stack.add(ByteBuffer.allocateDirect(STACK_CHUNK * 8).order(ByteOrder.nativeOrder())); // no LongBuffer view, only buffer itself can be freed
+		}
+		stack.get(chunk).putLong((int)(i % STACK_CHUNK) * 8, c);
+	}
+	
+	private long peek(long i) { // read index from position i of reveal queue
+		
+		return stack.get((int)(i / STACK_CHUNK)).getLong((int)(i % STACK_CHUNK) * 8);
+	}
+	
+	/**
+	 * Get board width in tiles.
+	 * 
+	 * @return amount of columns
+	 */
+	public long getColumns() {
+		
+		return columns;
+	}
+	/**
+	 * Get board height in tiles.
+	 * 
+	 * @return amount of rows
+	 */
+	public long getRows() {
+		
+		return rows;
+	}
+	/**
+	 * Get how many mines board has.
+	 * 
+	 * @return amount of mines
+	 */
+	public long getMines() {
+		
+		return mines;
+	}
+}
\ No newline at end of file
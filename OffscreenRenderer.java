@@ -0,0 +1,344 @@
+package minesweeper;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders game boards into images without a PApplet window, for thumbnails of played games and frames of replays.
+ * <p>
+ * Colors are the same as in overview of the board ({@link PixelRenderer}), which uses colors of TileGraphics.
+ * Renderer has a fixed set of canvases (image buffers) that are reused. Board is rasterized into a free canvas on the calling thread,
+ * which is fast and reads the board while caller isn't changing it, after that PNG encoding is done by worker threads.
+ * When all canvases are being encoded, next submit waits for a free one, so batches of thousands of games use constant memory.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see PixelRenderer
+ * @see BoardHistory
+ */
+public class OffscreenRenderer {
+	
+	private static class Canvas { // reusable image buffer
+		
+		BufferedImage image; // image that pixels belong to
+		int[] pixels; // pixels of the image, written directly
+		int[] tileX; // tile column of every pixel column
+		boolean[] edgeX; // is pixel column first column of its tile
+		int mapColumns = -1; // board width that column map was made for
+		
+		Canvas(int width, int height) {
+			
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+			tileX = new int[width];
+			edgeX = new boolean[width];
+		}
+	}
+	
+	private int width; // width of images in pixels
+	private int height; // height of images in pixels
+	private ArrayBlockingQueue<Canvas> free; // canvases that aren't being encoded
+	private int canvases; // how many canvases renderer has
+	private ExecutorService workers; // threads that encode images
+	
+	private AtomicInteger written = new AtomicInteger(); // images written to files
+	private AtomicInteger failed = new AtomicInteger(); // images that couldn't be written
+	private AtomicLong encodeTime = new AtomicLong(); // time used for encoding in nanoseconds
+	
+	/**
+	 * Renders game boards into images without a PApplet window.
+	 * 
+	 * @param width width of images in pixels
+	 * @param height height of images in pixels
+	 * @param threads how many images are encoded at the same time
+	 */
+	public OffscreenRenderer(int width, int height, int threads) {
+		
+		this.width = width;
+		this.height = height;
+		this.canvases = threads + 1; // one more, so caller can rasterize while all workers encode
+		this.free = new ArrayBlockingQueue<Canvas>(canvases);
+		
+		for(int i = 0; i < canvases; i++) free.add(new Canvas(width, height));
+		
+		AtomicInteger count = new AtomicInteger();
+		
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			
+			Thread t = new Thread(r, "offscreen-" + count.incrementAndGet());
+			t.setDaemon(true); // renderer doesn't keep program running
+			return t;
+		});
+	}
+	
+	/**
+	 * Rasterize board into pixels. Board is scaled to image size, every pixel gets color of the tile under its top left corner.
+	 * 
+	 * @param board board that is rendered
+	 * @param out array for pixels as 0xRRGGBB values, reused if it has width * height values
+	 * @return pixels of the image, row by row
+	 */
+	public int[] render(Board board, int[] out) {
+		
+		if(out == null || out.length != width * height) out = new int[width * height];
+		
+		Canvas c = this.take();
+		
+		try {
+			
+			this.rasterize(board, c);
+			System.arraycopy(c.pixels, 0, out, 0, out.length);
+		
+		} finally {
+			
+			free.add(c);
+		}
+		return out;
+	}
+	
+	/**
+	 * Rasterize board into raw RGB bytes, three bytes for every pixel.
+	 * 
+	 * @param board board that is rendered
+	 * @param out array for bytes, reused if it has width * height * 3 values
+	 * @return pixels of the image as red, green and blue bytes, row by row
+	 */
+	public byte[] renderRGB(Board board, byte[] out) {
+		
+		if(out == null || out.length != width * height * 3) out = new byte[width * height * 3];
+		
+		Canvas c = this.take();
+		
+		try {
+			
+			this.rasterize(board, c);
+			
+			for(int i = 0, j = 0; i < c.pixels.length; i++) {
+				
+				int rgb = c.pixels[i];
+				out[j++] = (byte)(rgb >> 16);
+				out[j++] = (byte)(rgb >> 8);
+				out[j++] = (byte)rgb;
+			}
+		
+		} finally {
+			
+			free.add(c);
+		}
+		return out;
+	}
+	
+	/**
+	 * Render board as PNG on calling thread.
+	 * 
+	 * @param board board that is rendered
+	 * @param out stream where PNG is written, stream isn't closed
+	 * @throws IOException PNG couldn't be written
+	 */
+	public void writePNG(Board board, OutputStream out) throws IOException {
+		
+		Canvas c = this.take();
+		
+		try {
+			
+			this.rasterize(board, c);
+			ImageIO.write(c.image, "png", out);
+		
+		} finally {
+			
+			free.add(c);
+		}
+	}
+	
+	/**
+	 * Rasterize board now and write it as PNG file on a worker thread. Board can be changed as soon as this returns.
+	 * Waits if all canvases are being encoded.
+	 * 
+	 * @param board board that is rendered
+	 * @param file PNG file that is written
+	 * @throws InterruptedException waiting for free canvas was interrupted
+	 * 
+	 * @see #finish()
+	 */
+	public void submit(Board board, Path file) throws InterruptedException {
+		
+		Canvas c = free.take();
+		boolean queued = false; // canvas goes back to free canvases on every path, otherwise finish() would wait for it forever
+		
+		try {
+			
+			this.rasterize(board, c);
+			workers.execute(() -> {
+				
+				long start = System.nanoTime();
+				
+				try {
+					
+					if(ImageIO.write(c.image, "png", file.toFile())) written.incrementAndGet();
+					else failed.incrementAndGet(); // no PNG writer
+				
+				} catch(IOException e) {
+					
+					System.err.println("Couldn't write image " + file);
+					failed.incrementAndGet();
+				
+				} finally {
+					
+					encodeTime.addAndGet(System.nanoTime() - start);
+					free.add(c); // canvas can be used again
+				}
+			});
+			queued = true;
+		
+		} finally {
+			
+			if(!queued) free.add(c); // rasterizing failed or workers are shut down
+		}
+	}
+	
+	/**
+	 * Write every version in undo history of the board as numbered PNG frames, from oldest version to current one.
+	 * Board is returned to current version after frames are rasterized. Board must not be changed by other threads meanwhile.
+	 * 
+	 * @param board board that has history
+	 * @param dir directory where frames are written
+	 * @param prefix start of frame file names, frames are named prefix_00000.png, prefix_00001.png...
+	 * @return amount of frames
+	 * @throws InterruptedException waiting for free canvas was interrupted
+	 * 
+	 * @see Board#setHistoryBudget(long)
+	 */
+	public int submitHistory(Board board, Path dir, String prefix) throws InterruptedException {
+		
+		board.commitHistory(); // changes that aren't committed yet are the newest frame
+		
+		int steps = 0;
+		while(board.undo()) steps++; // back to oldest version that history still has
+		
+		for(int i = 0; i <= steps; i++) {
+			
+			this.submit(board, dir.resolve(String.format("%s_%05d.png", prefix, i)));
+			if(i < steps) board.redo();
+		}
+		return steps + 1;
+	}
+	
+	/**
+	 * Wait until all submitted images have been written.
+	 * 
+	 * @throws InterruptedException waiting was interrupted
+	 */
+	public void finish() throws InterruptedException {
+		
+		Canvas[] all = new Canvas[canvases];
+		
+		for(int i = 0; i < canvases; i++) all[i] = free.take(); // every canvas is free only when nothing is being encoded
+		for(Canvas c : all) free.add(c);
+	}
+	
+	/**
+	 * Stop worker threads, images that are being encoded are still written.
+	 */
+	public void shutdown() {
+		
+		workers.shutdown();
+	}
+	
+	private Canvas take() { // free canvas for rendering on calling thread
+		
+		try {
+			
+			return free.take();
+		
+		} catch(InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for canvas", e);
+		}
+	}
+	
+	private void rasterize(Board board, Canvas c) { // same rasterization as PixelRenderer without pyramid
+		
+		Tile[][] tiles = board.getTiles();
+		int columns = board.getBoardSize().x;
+		int rows = board.getBoardSize().y;
+		
+		if(columns != c.mapColumns) {
+			
+			PixelRenderer.mapColumns(columns, c.tileX, c.edgeX);
+			c.mapColumns = columns;
+		}
+		
+		boolean grid = width / columns >= PixelRenderer.GRID_MIN && height / rows >= PixelRenderer.GRID_MIN;
+		int[] pixels = c.pixels;
+		
+		for(int py = 0; py < height; py++) {
+			
+			int ty = (int)((long)py * rows / height); // tile row under pixel row
+			boolean edgeY = grid && (py == 0 || (int)((long)(py - 1) * rows / height) != ty);
+			Tile[] row = tiles[ty];
+			int base = py * width;
+			
+			for(int px = 0; px < width; px++) {
+				
+				pixels[base + px] = (edgeY || (grid && c.edgeX[px])) ? PixelRenderer.GRID : PixelRenderer.color(row[c.tileX[px]]);
+			}
+		}
+	}
+	
+	/**
+	 * Get width of images.
+	 * 
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		
+		return width;
+	}
+	/**
+	 * Get height of images.
+	 * 
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		
+		return height;
+	}
+	/**
+	 * Get how many submitted images have been written.
+	 * 
+	 * @return amount of written images
+	 */
+	public int getWritten() {
+		
+		return written.get();
+	}
+	/**
+	 * Get how many submitted images couldn't be written.
+	 * 
+	 * @return amount of failed images
+	 */
+	public int getFailed() {
+		
+		return failed.get();
+	}
+	/**
+	 * Get time that worker threads have used for encoding.
+	 * 
+	 * @return encoding time of all images in nanoseconds
+	 */
+	public long getEncodeTime() {
+		
+		return encodeTime.get();
+	}
+}
\ No newline at end of file
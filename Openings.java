@@ -0,0 +1,310 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Labels of all openings in game board. Opening is an area of connected empty tiles (surround value 0)
+ * together with the numbered tiles surrounding it, so it is exactly what one click on an empty tile reveals.
+ * <p>
+ * Openings are found with union-find when board is generated. Rows are split into bands that are labelled in parallel,
+ * after that bands are joined together. Tiles of every opening are stored into one compact list,
+ * so opening can be revealed by going through its list without searching.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board
+ */
+public class Openings {
+	
+	private int[] regionOf; // opening of every empty tile by index in cells array, -1 if tile isn't empty
+	private int[] start; // where tiles of each opening start in list of tiles (count + 1 values)
+	private int[] list; // tiles of all openings: empty tiles of opening followed by numbered tiles surrounding them
+	private boolean[] touched; // has state of an empty tile in opening changed, after that opening has to be revealed tile by tile
+	private int isolated; // numbered tiles that don't touch any opening
+	
+	private Openings() {}
+	
+	/**
+	 * Find all openings of the board. Surround values of tiles need to be set before calling this.
+	 * 
+	 * @param cells tiles with border of sentinel tiles, stored row by row
+	 * @param stride width of bordered board in tiles
+	 * @param adjacency neighbours of every tile, empty tiles are connected through neighbours that flood fill spreads to
+	 * 
+	 * @return openings of the board
+	 */
+	public static Openings label(Tile[] cells, int stride, Adjacency adjacency) {
+		
+		Openings o = new Openings();
+		int rows = cells.length / stride - 2;
+		
+		// UNION EMPTY TILES INSIDE BANDS OF ROWS (IN PARALLEL)
+		int[] parent = new int[cells.length];
+		Arrays.fill(parent, -1);
+		
+		int bandRows = Math.max(16, rows / (Runtime.getRuntime().availableProcessors() * 4)); // rows in one band
+		int bands = (rows + bandRows - 1) / bandRows;
+		int[][] crossing = new int[bands][]; // pairs of connected empty tiles in different bands, found by every band
+		
+		IntStream.range(0, bands).parallel().forEach(b -> { // bands only touch their own tiles, so they don't need locking
+			
+			int first = b * bandRows + 1; // first row of band in bordered board
+			int last = Math.min(first + bandRows, rows + 1);
+			int[] pairs = new int[2 * stride];
+			int size = 0;
+			
+			for(int c = first * stride; c < last * stride; c++) {
+				
+				if(cells[c].getSurround() != 0) continue; // only empty tiles belong into openings (border tiles have no surround value)
+				
+				parent[c] = c;
+				int r = adjacency.rowOf(c); // border tiles have no surround value, so they are skipped like numbered tiles
+				
+				for(int i = adjacency.start[r]; i < adjacency.spread[r]; i++) {
+					
+					int n = c + adjacency.list[i];
+					
+					if(n >= c || cells[n].getSurround() != 0) continue; // every pair is joined from its larger index
+					
+					if(n >= first * stride) union(parent, c, n); // neighbour in same band, it has been labelled already
+					else { // neighbour in another band -> join after all bands are done
+						
+						if(size == pairs.length) pairs = Arrays.copyOf(pairs, size * 2);
+						pairs[size++] = c;
+						pairs[size++] = n;
+					}
+				}
+			}
+			crossing[b] = Arrays.copyOf(pairs, size);
+		});
+		
+		// JOIN BANDS TOGETHER
+		for(int[] pairs : crossing) {
+			for(int i = 0; i < pairs.length; i += 2) union(parent, pairs[i], pairs[i + 1]);
+		}
+		
+		// GIVE EVERY OPENING AN ID AND SORT EMPTY TILES BY OPENING
+		o.regionOf = new int[cells.length];
+		int count = 0;
+		
+		for(int c = 0; c < cells.length; c++) { // roots are always the smallest index of opening, so they are found first
+			
+			if(parent[c] < 0) {
+				
+				o.regionOf[c] = -1;
+			
+			} else {
+				
+				int root = find(parent, c);
+				o.regionOf[c] = (root == c) ? count++ : o.regionOf[root];
+			}
+		}
+		
+		int[] empties = new int[count + 1]; // how many empty tiles each opening has, later where they start
+		for(int c = 0; c < cells.length; c++) if(o.regionOf[c] >= 0) empties[o.regionOf[c] + 1]++;
+		for(int r = 0; r < count; r++) empties[r + 1] += empties[r];
+		
+		int[] sorted = new int[empties[count]]; // empty tiles sorted by opening
+		int[] fill = Arrays.copyOf(empties, count);
+		for(int c = 0; c < cells.length; c++) if(o.regionOf[c] >= 0) sorted[fill[o.regionOf[c]]++] = c;
+		
+		// ADD NUMBERED TILES SURROUNDING EACH OPENING
+		int[] mark = parent; // parent isn't needed anymore, reuse it to remember which opening has added a tile
+		Arrays.fill(mark, -1);
+		
+		o.start = new int[count + 1];
+		
+		for(int r = 0; r < count; r++) { // count tiles of every opening
+			
+			int size = empties[r + 1] - empties[r];
+			
+			for(int i = empties[r]; i < empties[r + 1]; i++) {
+				int row = adjacency.rowOf(sorted[i]); // border tiles have no surround value
+				
+				for(int k = adjacency.start[row]; k < adjacency.start[row + 1]; k++) {
+					
+					int n = sorted[i] + adjacency.list[k];
+					
+					if(cells[n].getSurround() > 0 && mark[n] != r) {
+						
+						mark[n] = r;
+						size++;
+					}
+				}
+			}
+			o.start[r + 1] = o.start[r] + size;
+		}
+		
+		Arrays.fill(mark, -1);
+		o.list = new int[o.start[count]];
+		
+		for(int r = 0; r < count; r++) { // fill list of tiles of every opening
+			
+			int pos = o.start[r];
+			
+			for(int i = empties[r]; i < empties[r + 1]; i++) o.list[pos++] = sorted[i];
+			
+			for(int i = empties[r]; i < empties[r + 1]; i++) {
+				int row = adjacency.rowOf(sorted[i]);
+				
+				for(int k = adjacency.start[row]; k < adjacency.start[row + 1]; k++) {
+					
+					int n = sorted[i] + adjacency.list[k];
+					
+					if(cells[n].getSurround() > 0 && mark[n] != r) {
+						
+						mark[n] = r;
+						o.list[pos++] = n;
+					}
+				}
+			}
+		}
+		
+		// COUNT NUMBERED TILES THAT AREN'T NEXT TO ANY OPENING
+		for(int c = 0; c < cells.length; c++) {
+			
+			if(cells[c].getSurround() > 0 && mark[c] < 0) o.isolated++;
+		}
+		
+		o.touched = new boolean[count];
+		
+		for(int c = 0; c < cells.length; c++) { // board can be labelled again during game, openings that have been played are already touched
+			
+			if(o.regionOf[c] >= 0 && cells[c].getState() != State.HIDDEN) o.touched[o.regionOf[c]] = true;
+		}
+		return o;
+	}
+	
+	private static int find(int[] parent, int c) { // find root of tile, halves path on the way
+		
+		while(parent[c] != c) {
+			
+			parent[c] = parent[parent[c]];
+			c = parent[c];
+		}
+		return c;
+	}
+	
+	private static void union(int[] parent, int a, int b) { // join openings of two tiles, smaller index becomes root
+		
+		a = find(parent, a);
+		b = find(parent, b);
+		
+		if(a < b) parent[b] = a;
+		else if(b < a) parent[a] = b;
+	}
+	
+	/**
+	 * Tell that state of tile has changed, if tile is empty its opening can't be revealed from its list anymore.
+	 * 
+	 * @param c index of tile in cells array
+	 */
+	public void touch(int c) {
+		
+		if(regionOf[c] >= 0) touched[regionOf[c]] = true;
+	}
+	
+	/**
+	 * Get opening of tile.
+	 * 
+	 * @param c index of tile in cells array
+	 * @return id of opening, -1 if tile isn't empty
+	 */
+	public int getRegion(int c) {
+		
+		return regionOf[c];
+	}
+	
+	/**
+	 * Check if state of an empty tile in opening has changed after board was generated.
+	 * Untouched opening can be revealed by going through its list of tiles,
+	 * touched one has to be revealed tile by tile.
+	 * 
+	 * @param r id of opening
+	 * @return has opening been touched
+	 */
+	public boolean isTouched(int r) {
+		
+		return touched[r];
+	}
+	
+	/**
+	 * Get where tiles of opening start in list of tiles.
+	 * 
+	 * @param r id of opening
+	 * @return position of first tile of opening
+	 * 
+	 * @see #getTile(int)
+	 */
+	public int getStart(int r) {
+		
+		return start[r];
+	}
+	
+	/**
+	 * Get where tiles of opening end in list of tiles.
+	 * 
+	 * @param r id of opening
+	 * @return position after last tile of opening
+	 * 
+	 * @see #getTile(int)
+	 */
+	public int getEnd(int r) {
+		
+		return start[r + 1];
+	}
+	
+	/**
+	 * Get tile from list of tiles of all openings. Empty tiles of each opening are listed first and numbered tiles after them.
+	 * 
+	 * @param i position in list of tiles
+	 * @return index of tile in cells array
+	 */
+	public int getTile(int i) {
+		
+		return list[i];
+	}
+	
+	/**
+	 * Get how many tiles (empty and surrounding numbered ones) belong to opening.
+	 * 
+	 * @param r id of opening
+	 * @return amount of tiles in opening
+	 */
+	public int getSize(int r) {
+		
+		return start[r + 1] - start[r];
+	}
+	
+	/**
+	 * Get how many openings board has.
+	 * 
+	 * @return amount of openings
+	 */
+	public int getCount() {
+		
+		return start.length - 1;
+	}
+	
+	/**
+	 * Get how many numbered tiles don't touch any opening, these have to be clicked one by one.
+	 * 
+	 * @return amount of isolated numbered tiles
+	 */
+	public int getIsolated() {
+		
+		return isolated;
+	}
+	
+	/**
+	 * Get 3BV of the board: least amount of clicks needed to reveal all tiles without mines.
+	 * Every opening takes one click and every isolated numbered tile takes one click.
+	 * 
+	 * @return 3BV of the board
+	 */
+	public int getThreeBV() {
+		
+		return this.getCount() + isolated;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package minesweeper;
+
+import java.util.stream.IntStream;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PImage;
+
+/**
+ * Renders overview of whole game board straight into pixels of an image, for big boards where tiles are only a few pixels.
+ * <p>
+ * No rect or text calls are made: every pixel gets color of the tile under it.
+ * Image is split into bands of rows that are rasterized in parallel, after that pixels are updated once.
+ * Tiles that are at least {@value #GRID_MIN} pixels wide get dark grid line on their top and left edge.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see TileGraphics
+ */
+public class PixelRenderer {
+	
+	static final int GRID_MIN = 4; // smallest tile size in pixels that gets grid lines
+	static final int GRID = 0xFF000000; // color of grid lines (0,0,0)
+	
+	private PApplet p; // parent PApplet which we draw into
+	private PImage image; // image that board is rasterized into
+	
+	static final int[] COLORS = new int[12]; // packed colors: 0-8 revealed surround values, 9 hidden, 10 flagged, 11 revealed mine
+	private int[] tileX = new int[0]; // tile column of every pixel column
+	private boolean[] edgeX = new boolean[0]; // is pixel column first column of its tile
+	private int mapColumns = -1; // board width that column map was made for
+	private CountPyramid pyramid; // state counts used to skip completely hidden blocks, null if not used
+	
+	private static final int SKIP_LEVEL = 4; // size of blocks that are skipped when completely hidden (16 x 16 tiles)
+	
+	static {
+		
+		COLORS[0] = 0xFF000000 | 20 << 16 | 20 << 8 | 20; // RGB color of revealed empty tile (20,20,20)
+		
+		for(int v = 1; v <= 8; v++) { // revealed numbered tiles are shown with color of their value, text wouldn't fit
+			
+			int[] c = TileGraphics.COLORS[v];
+			COLORS[v] = 0xFF000000 | c[0] << 16 | c[1] << 8 | c[2];
+		}
+		
+		COLORS[9] = 0xFF000000 | 220 << 16 | 220 << 8 | 220; // hidden (220,220,220)
+		COLORS[10] = 0xFF000000 | 200 << 16 | 10; // flagged (200,0,10)
+		COLORS[11] = 0xFF000000 | 255 << 16 | 22 << 8 | 22; // revealed mine, same red as mine symbol (255,22,22)
+	}
+	
+	/**
+	 * Renders overview of whole game board straight into pixels of an image.
+	 * 
+	 * @param p PApplet frame where image is drawn to
+	 * @param width width of overview in pixels
+	 * @param height height of overview in pixels
+	 */
+	public PixelRenderer(PApplet p, int width, int height) {
+		
+		this.p = p;
+		this.image = p.createImage(width, height, PConstants.RGB);
+	}
+	
+	/**
+	 * Rasterize board into the image and draw it at given position.
+	 * 
+	 * @param board board that is drawn
+	 * @param x x-coordinate of image in pixels
+	 * @param y y-coordinate of image in pixels
+	 */
+	public void draw(Board board, int x, int y) {
+		
+		this.render(board);
+		p.image(image, x, y);
+	}
+	
+	/**
+	 * Rasterize board into the image. Board is scaled to image size, every pixel gets color of the tile under its top left corner.
+	 * 
+	 * @param board board that is rasterized
+	 * @return image containing the board
+	 */
+	public PImage render(Board board) {
+		
+		Tile[][] tiles = board.getTiles();
+		int columns = board.getBoardSize().x;
+		int rows = board.getBoardSize().y;
+		int w = image.width;
+		int h = image.height;
+		
+		if(columns != mapColumns) this.mapColumns(columns);
+		
+		image.loadPixels();
+		int[] pixels = image.pixels;
+		
+		int bandRows = Math.max(8, h / (Runtime.getRuntime().availableProcessors() * 4)); // pixel rows in one band
+		int bands = (h + bandRows - 1) / bandRows;
+		boolean grid = w / columns >= GRID_MIN && h / rows >= GRID_MIN;
+		
+		IntStream.range(0, bands).parallel().forEach(b -> { // bands write only their own pixel rows
+			
+			for(int py = b * bandRows; py < Math.min((b + 1) * bandRows, h); py++) {
+				
+				int ty = (int)((long)py * rows / h); // tile row under pixel row
+				boolean edgeY = grid && (py == 0 || (int)((long)(py - 1) * rows / h) != ty);
+				Tile[] row = tiles[ty];
+				int base = py * w;
+				
+				int skip = (pyramid != null) ? Math.min(SKIP_LEVEL, pyramid.getLevels()) : 0;
+				
+				for(int px = 0; px < w; px++) {
+					
+					if(skip > 0 && pyramid.isAllHidden(skip, tileX[px] >> skip, ty >> skip)) { // whole block is hidden -> fill it without reading tiles
+						
+						int end = ((tileX[px] >> skip) + 1) << skip; // first tile column after block
+						
+						for(; px < w && tileX[px] < end; px++) {
+							pixels[base + px] = (edgeY || (grid && edgeX[px])) ? GRID : COLORS[9];
+						}
+						px--; // loop increases px again
+						continue;
+					}
+					
+					if(edgeY || (grid && edgeX[px])) {
+						
+						pixels[base + px] = GRID;
+						continue;
+					}
+					
+					pixels[base + px] = color(row[tileX[px]]);
+				}
+			}
+		});
+		
+		image.updatePixels(); // one update for whole board
+		return image;
+	}
+	
+	private void mapColumns(int columns) { // find tile column under every pixel column
+		
+		int w = image.width;
+		
+		if(tileX.length != w) {
+			
+			tileX = new int[w];
+			edgeX = new boolean[w];
+		}
+		
+		mapColumns(columns, tileX, edgeX);
+		mapColumns = columns;
+	}
+	
+	static void mapColumns(int columns, int[] tileX, boolean[] edgeX) { // fill tile column and tile edge of every pixel column
+		
+		int w = tileX.length;
+		
+		for(int px = 0; px < w; px++) {
+			
+			tileX[px] = (int)((long)px * columns / w);
+			edgeX[px] = px == 0 || tileX[px - 1] != tileX[px];
+		}
+	}
+	
+	static int color(Tile t) { // packed color of tile by its state
+		
+		switch(t.getState()) {
+			case HIDDEN:   return COLORS[9];
+			case FLAGGED:  return COLORS[10];
+			case REVEALED: return t.isMine() ? COLORS[11] : COLORS[Math.max(0, t.getSurround())];
+			default:       return GRID;
+		}
+	}
+	
+	/**
+	 * Use count pyramid to fill completely hidden blocks without reading their tiles.
+	 * Pyramid has to follow the same board that is rendered.
+	 * 
+	 * @param pyramid state counts of the board, null to read every tile
+	 */
+	public void setPyramid(CountPyramid pyramid) {
+		
+		this.pyramid = pyramid;
+	}
+	/**
+	 * Get image that board is rasterized into.
+	 * 
+	 * @return image of the board
+	 */
+	public PImage getImage() {
+		
+		return image;
+	}
+}
\ No newline at end of file
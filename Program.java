@@ -2,6 +2,8 @@ package minesweeper;
 
 import java.awt.Point;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 
 import processing.core.PApplet;
@@ -14,27 +16,66 @@ import processing.core.PFont;
  */
 public class Program extends PApplet {
 	
-	private enum Difficulty { // enum for game difficulties
+	enum Difficulty { // enum for game difficulties
 		EASY, MEDIUM, HARD
 	}
 	Difficulty dif; // current difficulty
 
 	TileGraphics tileRenderer; // renders tile related graphics
+	TileBatch tileBatch; // renders all tiles in batches grouped by state
+	PixelRenderer overviewRenderer; // renders whole board straight into pixels, for tiles too small for rect and text
+	boolean overview; // is board drawn as overview
+	CountPyramid pyramid; // tile state counts of blocks, used by minimap and overview
+	boolean minimap; // is minimap drawn in header
+	int[] minimapBox = new int[4]; // position and size of minimap in pixels
+	HintEngine hints = new HintEngine(new TranspositionCache<double[]>(4096, 8)); // finds safest tile on background thread
+	boolean showHint; // is hint drawn on the board
+	long hintDeadline = 5_000_000; // how long key press waits for first hint in nanoseconds
+	int[] hintBox = new int[4]; // position and size of hinted tile in pixels
+	static final int[] HINT_SAFE = {0,220,0}; // outline of tile that is certainly safe
+	static final int[] HINT_RISK = {240,140,0}; // outline of tile that is only the safest guess
+	Tournament tournament; // bots playing several boards at the same time, null when player is playing
+	int tournamentBoards = 4; // how many boards tournament has
 	MenuGraphics menuRenderer; // renders menu related graphics
 	
 	PFont font; // font that text uses
 	
+	InputQueue inputs; // mouse and keyboard input waiting for game logic
+	InputEvent input = new InputEvent(); // input currently handled by game logic
+	
+	ActionJournal journal; // write-ahead journal of current game, game is restored from it after a crash
+	boolean replaying = false; // is game being restored from journal?
+	
 	RecordMapper records; // tracks records
 	HashMap<String, Integer> recordTimes; // records for current runtime
 	
+	long launch; // when program was launched, startup times are measured from here
+	Startup startup; // reads records and generates first board on background threads
+	boolean loading = true; // are records or first board still loading? (placeholders are drawn)
+	Path journalFile = Paths.get("journal.bin"); // journal of current game
+	ActionJournal.Game saved; // unfinished game read from journal on startup, null if new game is started
+	
+	// record text colors by difficulty: EASY (100,255,100), MEDIUM (255,200,100), HARD (255,100,100)
+	static final int[][] RECORD_COLORS = {{100, 255, 100}, {255, 200, 100}, {255, 100, 100}};
+	String recordLabel; // record text, built again only when record or difficulty changes
+	int labelRecord; // record that record text shows
+	Difficulty labelDif; // difficulty that record text shows
+	int[] recordBox = new int[4]; // position of record text in pixels
+	
+	Point mousePos = new Point(); // reused for tile position in mouse callback, so input doesn't allocate
+	Point clickPos = new Point(); // reused for tile position when game logic handles click (separate from mousePos, callback runs on another thread)
+	
 	int time; // current processor time
 	int gameTime; // tracks when game started
 	
 	boolean gameover = false; // has player lost game?
 	boolean victory = false; // has player won game?
 	boolean newgame = true; // has player started a new game?
+	boolean practice = false; // has player used undo in current game? (practice games don't set records)
 	
 	static Board gameBoard; // gameboard that contains all tiles
+	BoardPool pool; // boards generated beforehand on background thread
+	EventBus events = new EventBus(4096); // game events for subscribers on other threads
 	
 	int tileColumns; // // number of columns that gameboard has
 	int tileRows; // // number of row that gameboard has
@@ -54,21 +95,25 @@ public class Program extends PApplet {
 	
 	public void setMineCount(Difficulty d) { // set mine count to match difficulty
 		
-		switch(dif) {
+		mines = mineCount(d);
+	}
+	
+	public int mineCount(Difficulty d) { // mine count of given difficulty
+		
+		switch(d) {
 		case EASY:
-			mines = (int)(tileRows * tileColumns * 0.1); // ~10% of tiles are mines
-			break;
+			return (int)(tileRows * tileColumns * 0.1); // ~10% of tiles are mines
 		case MEDIUM:
-			mines = (int)(tileRows * tileColumns * 0.15); // ~15% of tiles are mines
-			break;
-		case HARD:
-			mines = (int)(tileRows * tileColumns * 0.25); // ~25% of tiles are mines
-			break;
+			return (int)(tileRows * tileColumns * 0.15); // ~15% of tiles are mines
+		default:
+			return (int)(tileRows * tileColumns * 0.25); // ~25% of tiles are mines
 		}
 	}
 	
 	public void settings() { // screen size settings are done here
 		
+		launch = System.nanoTime(); // first thing that is run, startup is timed from here
+		
 		tileColumns = 12; // number of columns that gameboard has
 		tileRows = 15; // number of rows that gameboard has
 		tileWidth = 50; //width of tiles in pixels
@@ -88,137 +133,437 @@ public class Program extends PApplet {
 		dif = Difficulty.EASY; // Setting game default difficulty
 		setMineCount(dif); // set mine count to match difficulty
 		records = new RecordMapper(); // tracks change in records and saves new records to file
-		recordTimes = new HashMap<String, Integer>(); // track all records in current runtime
+		inputs = new InputQueue(64); // input is queued here and handled at the start of every frame
+		
+		// board that only tells size of the board until first board is ready, its tiles are never created
+		gameBoard = new Board(new Point(tileWidth, tileHeight), new Point(tileColumns,tileRows), mines, padding);
+		
+		int[] levelMines = new int[Difficulty.values().length]; // mine count of every difficulty for board pool
+		for(Difficulty d : Difficulty.values()) levelMines[d.ordinal()] = mineCount(d);
 		
-		gameBoard = new Board(new Point(tileWidth, tileHeight), new Point(tileColumns,tileRows), mines, padding); // create the gameboard with given values
-		gameBoard.randomize(gameBoard.getResolution().x, gameBoard.getResolution().y); // Randomize mine locations in the gameboard
-		gameBoard.setSurroundAll(); // find how many mines surround every non mine tile and save that information to Tile objects surround property
+		pool = new BoardPool(gameBoard.getResolution(), gameBoard.getBoardSize(), padding, levelMines, 2, 16 * 1024 * 1024); // two ready boards per difficulty
+		
+		startup = new Startup(launch, this::loadRecords, this::loadBoard); // window opens while records and first board are loading
 		
 		background(20); // set background color to RGB value (20,20,20)
 		
+		tileRenderer = new TileGraphics(this, padding); // renderer for tile related graphics, this keyword is for passing the PApplet "frame" (so that engine knows "where" to draw stuff)
+		tileRenderer.setTextSize(((tileWidth >= tileHeight) ? (int)(tileWidth * 0.7) : (int)(tileHeight * 0.7))); /// set text size for numbers and mine symbols
+		
+		tileBatch = new TileBatch(this, tileRenderer, padding); // draws tiles in groups instead of one by one
+		overviewRenderer = new PixelRenderer(this, tileColumns * tileWidth, tileRows * tileHeight); // same area as the board, so clicks hit same tiles
+		overview = tileWidth < 8 || tileHeight < 8; // tiny tiles are drawn as overview by default
+		
+		pyramid = new CountPyramid();
+		overviewRenderer.setPyramid(pyramid); // overview skips blocks that are completely hidden
+		minimap = overview; // board that can't be seen well gets minimap by default
+		minimapBox[3] = padding[0] - 10; // square that fits into header
+		minimapBox[2] = minimapBox[3];
+		minimapBox[1] = 5;
+		minimapBox[0] = (int)(width*0.82) - (int)(padding[0]*0.25) - 10 - minimapBox[2]; // left of difficulty buttons
+		
+		menuRenderer = new MenuGraphics(this); // renderer for menu related graphics
+		menuRenderer.setTextSize((int)(0.6 * padding[0])); // set text size for records
+		
+		// add buttons for choosing difficulties (E=Easy, M=Medium, H=Hard)
+		menuRenderer.addButton(new Button(new Point((int)(width*0.82), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {0,220,0}, "E"));
+		menuRenderer.addButton(new Button(new Point((int)(width*0.89), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {220,180,0}, "M"));
+		menuRenderer.addButton(new Button(new Point((int)(width*0.96), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {220,0,0}, "H"));
+		
+		noLoop(); // frames are drawn only when something changes, idle game doesn't use CPU
+	}
+	
+	public HashMap<String, Integer> loadRecords() { // read records from file, runs on startup thread
+		
 		try {
 			
-			recordTimes = records.readRecords("recordMapper.ser"); // reads records from file to current runtimes records
+			return records.readRecords("recordMapper.ser"); // reads records from file to current runtimes records
 			
 		} catch (ClassNotFoundException | IOException | NullPointerException e) {
 			
 			System.err.println("Couldn't read records, setting all records to default value.");
 			
+			HashMap<String, Integer> defaults = new HashMap<String, Integer>();
+			
 			for(Difficulty d : Difficulty.values()) { // set all records to default value of -1
-				recordTimes.put(d.toString(), -1);
+				defaults.put(d.toString(), -1);
 			}
+			return defaults;
 		}
+	}
+	
+	public Board loadBoard() { // read journal and generate first board, runs on startup thread
 		
-		tileRenderer = new TileGraphics(this, padding); // renderer for tile related graphics, this keyword is for passing the PApplet "frame" (so that engine knows "where" to draw stuff)
-		tileRenderer.setTextSize(((tileWidth >= tileHeight) ? (int)(tileWidth * 0.7) : (int)(tileHeight * 0.7))); /// set text size for numbers and mine symbols
+		try {
+			
+			saved = ActionJournal.read(journalFile); // game that was running when program stopped
+			
+		} catch (IOException e) {
+			
+			System.err.println("Couldn't read journal, starting new game.");
+		}
 		
-		menuRenderer = new MenuGraphics(this); // renderer for menu related graphics
-		menuRenderer.setTextSize((int)(0.6 * padding[0])); // set text size for records
+		if(saved != null && (saved.isEnded() || saved.getColumns() != tileColumns || saved.getRows() != tileRows)) saved = null; // only unfinished game is continued
 		
-		// add buttons for choosing difficulties (E=Easy, M=Medium, H=Hard)
-		menuRenderer.addButton(new Button(new Point((int)(width*0.82), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {0,220,0}, "E"));
-		menuRenderer.addButton(new Button(new Point((int)(width*0.89), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {220,180,0}, "M"));
-		menuRenderer.addButton(new Button(new Point((int)(width*0.96), (int)(padding[0]/2)), (int)(padding[0]*0.5), new int[] {220,0,0}, "H"));
+		Board board = new Board(new Point(tileWidth, tileHeight), new Point(tileColumns,tileRows), mines, padding); // create the gameboard with given values
+		board.setHistoryBudget(16 * 1024 * 1024); // keep undo/redo history of moves, 16 MB at most
+		board.setLazySurround(tileColumns * tileRows >= 1 << 20); // huge boards count surround values only when they are needed
+		
+		if(saved != null) { // same seed gives same board, moves are replayed on animation thread
+			
+			board.setMines(saved.getMines());
+			board.randomize(tileWidth, tileHeight, saved.getSeed());
+		}
+		else {
+			
+			board.randomize(tileWidth, tileHeight);
+		}
+		board.setSurroundAll();
+		return board;
+	}
+	
+	public void finishStartup() { // start first game when records and first board are ready, runs on animation thread
+		
+		recordTimes = startup.getRecords();
+		
+		if(recordTimes == null) { // reading failed -> all records have default value
+			
+			recordTimes = new HashMap<String, Integer>();
+			for(Difficulty d : Difficulty.values()) recordTimes.put(d.toString(), -1);
+		}
+		
+		Board first = startup.getBoard();
+		journal = new ActionJournal(journalFile, 50); // opened only after unfinished game has been read, moves are synced to disk every 50 ms
+		
+		if(first != null && saved != null) { // game didn't end -> continue it
+			
+			useBoard(first);
+			restoreGame(saved);
+		}
+		else {
+			
+			startGame(dif, first); // start game with default difficulty, board is generated here if startup failed
+		}
+		
+		pool.fill(dif.ordinal()); // start generating boards only now, so they don't slow down first board
+		
+		inputs.clear(); // clicks on placeholders aren't moves
+		loading = false;
+		startup.frameDrawn(); // first frame is this one if loading finished before any placeholder was drawn
+		startup.playable();
+		System.out.println(startup);
+	}
+	
+	public void drawLoading() { // draw placeholders while records and first board are loading
+		
+		background(20);
+		menuRenderer.drawButtons();
+		
+		recordBox[0] = padding[2];
+		recordBox[1] = 0;
+		recordBox[2] = width - padding[3];
+		recordBox[3] = padding[0];
+		menuRenderer.drawText("Record | ...", recordBox, RECORD_COLORS[dif.ordinal()]);
+		
+		int[] area = {padding[2], padding[0], tileColumns * tileWidth, tileRows * tileHeight};
+		menuRenderer.drawPlaceholder("Loading...", area);
+		
+		startup.frameDrawn();
+		loop(); // keep drawing until loading is done
+	}
+	
+	public void restoreGame(ActionJournal.Game saved) { // restore game from journal by replaying its moves on the same board
+		
+		dif = Difficulty.values()[saved.getDifficulty()];
+		mines = saved.getMines();
+		
+		// board was already generated from seed of the game on startup thread
+		if(saved.applyCheckpoint(gameBoard)) gameBoard.resetHistory(); // start from checkpoint if journal has one, undo can't go past it like in the game that was saved
+		practice = saved.isPractice(); // undo moves after checkpoint set this again when they are replayed
+		
+		replaying = true; // moves are already in journal
+		for(InputEvent e : saved.getMoves()) {
+			
+			if(e.getType() == InputEvent.Type.MOUSE) handleMouse(e);
+			else handleKey(e);
+		}
+		replaying = false;
+		
+		newgame = !saved.isStarted(); // game time continues from last move
+		gameTime = millis() - saved.getElapsed();
+		
+		journal.continueGame(saved);
+		if(gameover || victory) journal.endGame(); // last move ended the game
+	}
+	
+	public void dispose() { // happens when program stops
+		
+		startup.shutdown(); // stop loading if it hasn't finished
+		if(journal != null) journal.close(); // write rest of the moves to disk
+		pool.shutdown(); // stop generating boards
+		hints.shutdown(); // stop solver
+		if(tournament != null) tournament.stop(); // stop bots
+		events.shutdown(); // stop subscribers
+		super.dispose();
 	}
 	
 	public void draw() { // game loop (similar to while(true))
 		
+		if(loading) { // first game can't be played yet
+			
+			if(!startup.isReady()) {
+				
+				drawLoading();
+				return;
+			}
+			finishStartup();
+		}
+		
+		processInputs(); // handle all input that happened since last frame
+		
 		background(20); // refreshes the screen with empty background
 		
 		menuRenderer.drawButtons(); // draw difficulty buttons
 		
-		int[] colorTemp; // set color for record text to indicate what difficulty is selected
-		if(dif == Difficulty.EASY) {
-			colorTemp = new int[] {100, 255, 100}; // RGB value (100,255,100)
+		int record = recordTimes.get(dif.toString()); // record time for selected difficulty
+		
+		if(recordLabel == null || record != labelRecord || dif != labelDif) { // build record text only when record or difficulty has changed
+			
+			updateRecordLabel(record);
 		}
-		else if(dif == Difficulty.MEDIUM) {
-			colorTemp = new int[] {255, 200, 100}; // RGB value (255,200,100)
+		
+		menuRenderer.drawText(recordLabel, recordBox, RECORD_COLORS[dif.ordinal()]); // record text color indicates what difficulty is selected
+		
+		if(tournament != null) { // bots play on their own threads, frames only show their latest published moves
+			
+			tournament.draw();
+			loop();
+			return;
 		}
-		else {
-			colorTemp = new int[] {255, 100, 100}; // RGB value (255,100,100)
+		
+		pyramid.sync(gameBoard); // follow current board, built again only for new board
+		
+		if(minimap) menuRenderer.drawMinimap(pyramid, minimapBox); // draw minimap into header
+		
+		if(overview) overviewRenderer.draw(gameBoard, padding[2], padding[0]); // draw all tiles as pixels
+		else tileBatch.draw(gameBoard); // draw all tiles, grouped by how they look
+		
+		HintEngine.Hint hint = showHint ? hints.poll(gameBoard) : null; // hint is dropped when board changes
+		
+		if(hint != null && hint.getX() >= 0) { // draw outline around hinted tile
+			
+			hintBox[0] = padding[2] + hint.getX() * tileWidth;
+			hintBox[1] = padding[0] + hint.getY() * tileHeight;
+			hintBox[2] = tileWidth;
+			hintBox[3] = tileHeight;
+			menuRenderer.drawOutline(hintBox, hint.isSafe() ? HINT_SAFE : HINT_RISK);
+		}
+		
+		if(gameover || victory) { // if game is over (victory or defeat)
+			
+			if(millis() - time >= 2000) { // wait 2 seconds before starting new game
+				
+				startGame(dif); // start new game with same difficulty
+			}
 		}
 		
-		if(recordTimes.get(dif.toString()) > 0) { // show selected difficulty's record
+		if(gameover || victory || (showHint && hints.isRunning())) { // keep drawing frames until 2 second delay has passed or hint is refined
 			
-			int temp = recordTimes.get(dif.toString()); // get record time for selected difficulty
-			int[] timeFormat = new int[3]; // holds minutes,seconds
-			timeFormat[0] = (int)(temp / 60000); // convert milliseconds to minutes
-			temp -= timeFormat[0] * 60000; // calculate remaining milliseconds
-			timeFormat[1] = (int)(temp /  1000); // convert remaining milliseconds to seconds
-			temp -= timeFormat[1] * 1000; // calculate remaining milliseconds
+			loop();
+		}
+		else if(isLooping()) { // delay is over -> draw new board once and stop drawing until next input
+			
+			noLoop();
+			redraw();
+		}
+	}
+	
+	public void showMines() { // reveal all mines of the board when game is over
+		
+		Point size = gameBoard.getBoardSize();
+		
+		for(int y = 0; y < size.y; y++) {
+			for(int x = 0; x < size.x; x++) {
+				
+				Tile t = gameBoard.getTile(x, y);
+				if(t.isMine() && t.getState() != State.REVEALED) gameBoard.setTileState(x, y, State.REVEALED); // reveal tile if it is a mine
+			}
+		}
+	}
+	
+	public void updateRecordLabel(int record) { // build record text of selected difficulty, called only when it changes
+		
+		labelRecord = record;
+		labelDif = dif;
+		
+		if(record > 0) { // show selected difficulty's record
+			
+			int temp = record;
+			int minutes = temp / 60000; // convert milliseconds to minutes
+			temp -= minutes * 60000; // calculate remaining milliseconds
+			int seconds = temp / 1000; // convert remaining milliseconds to seconds
+			temp -= seconds * 1000; // calculate remaining milliseconds
 			
 			// show selected difficulty's record time as: Record | minutes : seconds : milliseconds
-			menuRenderer.drawText("Record | " + timeFormat[0] + " : " + timeFormat[1] + " : " + temp , new int[] {padding[2], 0, width - padding[3], padding[0]}, colorTemp);
-		} 
+			recordLabel = "Record | " + minutes + " : " + seconds + " : " + temp;
+			recordBox[0] = padding[2];
+		}
 		else { // show empty record as: Record |
 			
-			if(padding[2] <= 5) { // set minimum padding from left side (ie. if left side padding is under 5, set padding to 5)
-				
-				menuRenderer.drawText("Record | ", new int[] {5, 0, width - padding[3], padding[0]}, colorTemp);
-			} 
-			else { // set text left padding as given in settings
+			recordLabel = "Record | ";
+			recordBox[0] = (padding[2] <= 5) ? 5 : padding[2]; // set minimum padding from left side (ie. if left side padding is under 5, set padding to 5)
+		}
+		
+		recordBox[1] = 0;
+		recordBox[2] = width - padding[3];
+		recordBox[3] = padding[0];
+	}
+	
+	public void mousePressed() { // happens if mouse button is pressed (doesn't matter which one)
+		
+		int tile = -1; // index of clicked tile, -1 if click was outside the gameboard
+		
+		if(onBoard(mouseX, mouseY)) {
+			
+			gameBoard.normalizePosition(mouseX, mouseY, mousePos); // normalize mouse position to match tile positions
+			tile = mousePos.y * gameBoard.getBoardSize().x + mousePos.x;
+		}
+		
+		inputs.offerMouse(mouseX, mouseY, mouseButton, tile); // game logic handles the click at the start of next frame
+		redraw(); // draw frame that handles the click
+	}
+	
+	public void keyPressed() { // happens if key is pressed
+		
+		inputs.offerKey(key, keyCode); // game logic handles the key at the start of next frame
+		redraw(); // draw frame that handles the key
+	}
+	
+	public void processInputs() { // handle all queued input, called at frame boundary
+		
+		while(inputs.poll(input)) {
+			
+			if(input.getType() == InputEvent.Type.MOUSE) {
 				
-				menuRenderer.drawText("Record | ", new int[] {padding[2], 0, width - padding[3], padding[0]}, colorTemp);
+				handleMouse(input);
 			}
-		}
+			else {
 				
-		if(!gameover && !victory) { // if game is still running
+				handleKey(input);
+			}
+			
+			inputs.handled(input); // track latency from input to game state
 			
-			for(Tile[] outer : gameBoard.getTiles()) { // draw all tiles
+			if(journal.needsCheckpoint()) { // compact journal so restoring stays fast
 				
-				for(Tile inner : outer) {
-					
-					try {
-						
-						tileRenderer.drawTile(inner); // draw a tile
-					} 
-					catch (CustomException e) {
-						
-						e.printStackTrace();				
-						if(e.getType() == ExType.TILESTATE) {	
-							System.err.println("Error with tile state initialization");
-						}
-					}
-				}
+				journal.checkpoint(gameBoard, millis() - gameTime, practice);
+				gameBoard.resetHistory(); // moves before checkpoint can't be restored, so they can't be undone either
 			}
-		} 
-		else { // if game is over (victory or defeat)
+		}
+	}
+	
+	public boolean onBoard(int x, int y) { // check if position is within gameboard
+		
+		return !(x < padding[2] || x > gameBoard.getBoardSize().x * gameBoard.getResolution().x || y < padding[0] || y > gameBoard.getBoardSize().y * gameBoard.getResolution().y + padding[0]);
+	}
+	
+	public void startGame(Difficulty d) { // start new game with given difficulty
+		
+		// restart game with new difficulty (or restart with same if same difficulty was selected)
+		startGame(d, pool.take(d.ordinal())); // take board that was generated in the background
+	}
+	
+	public void startGame(Difficulty d, Board ready) { // start new game on board that is ready, null if board has to be generated here
+		
+		dif = d; // set game difficulty
+		setMineCount(dif); // set mine count to match difficulty
+		
+		if(ready != null) { // board is ready -> just swap the board
 			
-			for(Tile[] outer : gameBoard.getTiles()) { // show all mines
+			useBoard(ready);
+		}
+		else { // pool was empty -> generate board here
+			
+			gameBoard.setMines(mines); // change mine count based to difficulty
+			gameBoard.randomize(gameBoard.getResolution().x, gameBoard.getResolution().y); // Randomize mine locations in the gameboard
+			gameBoard.setSurroundAll(); // find how many mines surround every non mine tile and save that information to Tile objects surround property
+		}
+		journal.startGame(gameBoard.getSeed(), dif.ordinal(), tileColumns, tileRows, mines); // new game replaces old journal
+		events.publish(GameEvent.Type.NEW_GAME, tileColumns, tileRows, mines);
+		
+		//set booleans to indicate new game
+		gameover = false;
+		victory = false;
+		newgame = true;
+		practice = false;
+	}
+	
+	public void useBoard(Board board) { // swap current board
+		
+		gameBoard.removeTileListener(events);
+		gameBoard = board;
+		gameBoard.addTileListener(events); // events follow the current board
+	}
+	
+	public void handleKey(InputEvent e) { // handle queued key press
+		
+		switch(Character.toUpperCase(e.getKey())) { // keys match labels of difficulty buttons
+		case 'E':
+			startGame(Difficulty.EASY);
+			break;
+		case 'M':
+			startGame(Difficulty.MEDIUM);
+			break;
+		case 'H':
+			startGame(Difficulty.HARD);
+			break;
+		case 'Z': // undo last move
+			if(!gameover && !victory && gameBoard.undo()) {
 				
-				for(Tile inner : outer) {
-					
-					try {
-						
-						if(inner.isMine()) inner.setState(State.REVEALED); // reveal tile if it is a mine
-						
-						tileRenderer.drawTile(inner); // draw a tile
-					} 
-					
-					catch (CustomException e) {
-						
-						e.printStackTrace();
-						if(e.getType() == ExType.TILESTATE) {	
-							
-							System.err.println("Error with tile state initialization");
-						}
-					}
-				}
+				practice = true;
+				if(!replaying) journal.logKey('Z', millis() - gameTime);
 			}
-			if(millis() - time >= 2000) { // wait 2 seconds before starting new game
+			break;
+		case 'O': // toggle overview of the board
+			overview = !overview;
+			break;
+		case 'N': // toggle minimap
+			minimap = !minimap;
+			break;
+		case 'T': // show hint (H is already hard difficulty)
+			if(!gameover && !victory && !replaying) {
 				
-				gameBoard.randomize(gameBoard.getResolution().x, gameBoard.getResolution().y); // Randomize mine locations in the gameboard
-				gameBoard.setSurroundAll(); // find how many mines surround every non mine tile and save that information to Tile objects surround property
+				hints.request(gameBoard); // solver keeps refining in the background
+				hints.await(hintDeadline); // first hint is usually ready in well under the deadline
+				showHint = true;
+			}
+			break;
+		case 'B': // start or stop bot tournament
+			if(tournament == null) {
+				
+				int[] area = {padding[2], padding[0], tileColumns * tileWidth, tileRows * tileHeight}; // boards share the area of the game board
+				tournament = new Tournament(this, tournamentBoards, new Point(tileColumns, tileRows), mines, area, System.nanoTime());
+				tournament.start();
+			}
+			else {
+				
+				tournament.stop();
+				tournament = null;
+				redraw(); // draw game board again
+			}
+			break;
+		case 'Y': // redo undone move
+			if(!gameover && !victory && gameBoard.redo()) {
 				
-				//set booleans to indicate new game
-				gameover = false;
-				victory = false;
-				newgame = true;
+				if(!replaying) journal.logKey('Y', millis() - gameTime);
 			}
+			break;
 		}
 	}
 	
-	public void mousePressed() { // happens if mouse button is pressed (doesn't matter which one)
+	public void handleMouse(InputEvent e) { // handle queued mouse press
+		
+		if(tournament != null && e.getTile() >= 0) return; // game board isn't shown during tournament
 		
 		if(newgame) { // start tracking time for new game
 			
@@ -226,48 +571,43 @@ public class Program extends PApplet {
 			newgame = false; // set boolean to indicate that game has started
 		}
 		// see if mouse is clicked outside the gameboard (ie. buttons)
-		if(mouseX < padding[2] || mouseX > gameBoard.getBoardSize().x * gameBoard.getResolution().x || mouseY < padding[0] || mouseY > gameBoard.getBoardSize().y * gameBoard.getResolution().y + padding[0]) {
+		if(e.getTile() < 0) {
 			
-			if(mouseButton == LEFT && menuRenderer.buttonFound(mouseX, mouseY) > -1) { // see if button was clicked
+			if(e.getButton() == LEFT && menuRenderer.buttonFound(e.getX(), e.getY()) > -1) { // see if button was clicked
 				
-				int buttonIndex = menuRenderer.buttonFound(mouseX, mouseY); // check what button was clicked
+				int buttonIndex = menuRenderer.buttonFound(e.getX(), e.getY()); // check what button was clicked
 				
 				if(buttonIndex == 0) { // button for changing difficulty to EASY was clicked
 					
-					dif = Difficulty.EASY; // set game difficulty to EASY
+					startGame(Difficulty.EASY); // set game difficulty to EASY
 				}
 				else if(buttonIndex == 1) { // button for changing difficulty to MEDIUM was clicked
 					
-					dif = Difficulty.MEDIUM; // set game difficulty to MEDIUM
+					startGame(Difficulty.MEDIUM); // set game difficulty to MEDIUM
 				}
 				else if(buttonIndex == 2) { // button for changing difficulty to HARD was clicked
 					
-					dif = Difficulty.HARD; // set game difficulty to HARD
+					startGame(Difficulty.HARD); // set game difficulty to HARD
 				}
-				
-				setMineCount(dif); // set mine count to match difficulty
-				
-				// restart game with new difficulty (or restart with same if same difficulty was selected)
-				gameBoard.setMines(mines); // change mine count based to difficulty
-				gameBoard.randomize(gameBoard.getResolution().x, gameBoard.getResolution().y); // Randomize mine locations in the gameboard
-				gameBoard.setSurroundAll(); // find how many mines surround every non mine tile and save that information to Tile objects surround property
-				
-				//set booleans to indicate new game
-				gameover = false;
-				victory = false;
-				newgame = true;
 			}
 		}
 		else { // if click was within gameboard
 			
 			if(!gameover && !victory) { // if game is still running
 				
-				Point temp = gameBoard.normalizePosition(mouseX, mouseY); // normalize mouse position to match tile positions
+				if(!replaying) journal.logMouse(e.getTile(), e.getButton(), e.getCount(), millis() - gameTime); // write move into journal before it changes the board
 				
-				if(mouseButton == LEFT) { // check if mouse button pressed was left button
+				Point temp = clickPos;
+				temp.setLocation(e.getTile() % gameBoard.getBoardSize().x, e.getTile() / gameBoard.getBoardSize().x); // tile position that was calculated when click happened
+				
+				if(e.getButton() == LEFT) { // check if mouse button pressed was left button
+					
+					gameBoard.protectFirstClick(temp.x, temp.y); // first click of the game can't hit a mine
 					
 					if(gameBoard.getTile(temp.x, temp.y).getState() == State.REVEALED) { // check if tile was already revealed -> call quality of life feature to reveal surrounding tiles
 						
+						events.publish(GameEvent.Type.CHORD, temp.x, temp.y, 0);
+						
 						if(gameBoard.revealSurround(temp.x, temp.y)) { // check if any of the surrounding tiles were non flagged mines -> True if none were
 							
 							gameBoard.revealSurround(temp.x, temp.y); // reveal non-flagged surrounding tiles
@@ -276,12 +616,14 @@ public class Program extends PApplet {
 							
 							time = millis(); // save current time to know when 2 seconds is passed
 							gameover = true; // set boolean to indicate gameover to start new game
+							events.publish(GameEvent.Type.EXPLOSION, temp.x, temp.y, 0);
 						}
 						
 					} else if(gameBoard.getTile(temp.x, temp.y).isMine()) { // check if clicked tile was a mine
 						
 						time = millis(); // save current time to know when 2 seconds is passed
 						gameover = true; // set boolean to indicate gameover
+						events.publish(GameEvent.Type.EXPLOSION, temp.x, temp.y, 0);
 						
 					} else {
 						
@@ -295,12 +637,14 @@ public class Program extends PApplet {
 						}
 					}
 				} 
-				else if (mouseButton == RIGHT) { // check if mouse button pressed was right button
+				else if (e.getButton() == RIGHT) { // check if mouse button pressed was right button
 					
 					if(gameBoard.getTile(temp.x, temp.y).getState() == State.REVEALED) { // check if tile was already revealed -> call quality of life feature to flag surrounding hidden tiles
 						
 						gameBoard.flagSurround(temp.x, temp.y); //  flag all surrounding hidden tiles if hidden tile count equals to clicked tiles surround property
 						
+					} else if(e.getCount() % 2 == 0) { // even amount of coalesced toggles cancel each other out
+						
 					} else if(gameBoard.getTile(temp.x, temp.y).getState() == State.FLAGGED) { // Toggle flag: Flagged -> Hidden
 						
 						gameBoard.setTileState(temp.x, temp.y, State.HIDDEN); // set tile state to hidden
@@ -313,16 +657,23 @@ public class Program extends PApplet {
 			}
 		}	
 		
+		gameBoard.commitHistory(); // save changes of this move as one version in undo/redo history
+		
 		if(gameBoard.gameWin()) { // check if player won the game
 			
 			time = millis(); // save processor time for calculating game time
 			
-			if(recordTimes.get(dif.toString()) > time - gameTime || recordTimes.get(dif.toString()) < 0) { // check if time is new record or first completed game
+			if(!practice && !replaying && (recordTimes.get(dif.toString()) > time - gameTime || recordTimes.get(dif.toString()) < 0)) { // check if time is new record or first completed game
 				
 				recordTimes.put(dif.toString(), time - gameTime); // add record to runtime's list of records
+				recordTimes.put(dif.toString() + "_3BV", gameBoard.getStats().getThreeBV()); // 3BV of record board, so records can be compared by board difficulty
 				records.writeRecords(recordTimes, "recordMapper.ser"); // save record to file containing all records
 			}
 			victory = true; // set boolean to indicate victory, so that new game can start
+			events.publish(GameEvent.Type.WIN, 0, 0, time - gameTime);
 		}
+		
+		if(gameover || victory) showMines(); // show all mines until next game starts
+		if((gameover || victory) && !replaying) journal.endGame(); // ended game isn't restored
 	}
 }
\ No newline at end of file
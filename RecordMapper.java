@@ -25,6 +25,7 @@ public class RecordMapper {
 	 * Save current records HashMap into file using serialization.
 	 * 
 	 * HashMap pair format = Key: String (Difficulty), Value: Integer (Time in milliseconds)
+	 * and Key: String (Difficulty + "_3BV"), Value: Integer (3BV of record board)
 	 * 
 	 * @param records HashMap of current records
 	 * @param filename name of the serialization file
@@ -51,6 +52,7 @@ public class RecordMapper {
 	 * Load current records HashMap from file using serialization.
 	 * 
 	 * HashMap pair format = Key: String (Difficulty), Value: Integer (Time in milliseconds)
+	 * and Key: String (Difficulty + "_3BV"), Value: Integer (3BV of record board)
 	 * 
 	 * @param filename name of the serialization file
 	 * 
@@ -0,0 +1,404 @@
+package minesweeper;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Game board that many players (or bot threads) can clear together at the same time.
+ * <p>
+ * Every tile is packed into one int of an {@link AtomicIntegerArray} and state changes
+ * (hidden to revealed, hidden to flagged and back) are compare-and-set operations on that int,
+ * so there is no lock: when two threads try to change the same tile only one of them succeeds.
+ * Revealing empty tiles is safe for the same reason, tile is added into queue only by the thread that revealed it.
+ * <p>
+ * Tile format: bits 0-3 surround value (15 = no value), bit 4 mine, bits 5-6 ordinal of {@link State}.
+ * Like {@link Board}, tiles are stored row by row with one tile wide border of sentinel tiles.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see OffHeapBoard
+ */
+public class SharedBoard {
+	
+	private static final int SURROUND = 0x0F; // bits of surround value
+	private static final int NO_SURROUND = 0x0F; // surround value of mines and sentinel tiles
+	private static final int MINE = 0x10; // bit of mine
+	private static final int STATE_SHIFT = 5; // position of state bits
+	private static final int STATE = 0x60; // bits of state
+	
+	private static final State[] STATES = State.values(); // states by ordinal
+	private static final int SENTINEL = (State.NONE.ordinal() << STATE_SHIFT) | NO_SURROUND; // border tile: never a mine, never hidden
+	private static final int HIDDEN = (State.HIDDEN.ordinal() << STATE_SHIFT) | NO_SURROUND; // initial tile
+	
+	// directions to surrounding tiles (column, row), four first ones are vertical and horizontal neighbours
+	private static final int[][] DIRECTIONS = {{0,-1}, {-1,0}, {1,0}, {0,1}, {-1,-1}, {1,-1}, {-1,1}, {1,1}};
+	
+	private int columns; // board width in tiles
+	private int rows; // board height in tiles
+	private int mines; // mine count in game board
+	private int stride; // width of bordered board in tiles (columns + 2)
+	private int[] neighbours; // index offsets from tile to its eight surrounding tiles
+	
+	private AtomicIntegerArray cells; // packed tiles
+	
+	private LongAdder safeLeft = new LongAdder(); // how many tiles without mines aren't revealed, only ever decremented
+	private volatile boolean exploded = false; // has someone revealed a mine
+	
+	/**
+	 * Game board that many threads can play at the same time.
+	 * 
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param mines mine count in game board
+	 */
+	public SharedBoard(int columns, int rows, int mines) {
+		
+		this.columns = columns;
+		this.rows = rows;
+		this.stride = columns + 2;
+		
+		if(mines < columns * rows) { // check mine count is less than amount of tiles
+			
+			this.mines = mines;
+		
+		} else { // if mine count exceeds tile count, set mine count to 90% of tiles
+			
+			System.err.println("Mine count exceeded tile count >> Set: Mine count = 0.9 * tile count");
+			this.mines = (int)(0.9 * columns * rows);
+		}
+		
+		neighbours = new int[DIRECTIONS.length];
+		
+		for(int i = 0; i < DIRECTIONS.length; i++) { // convert directions into index offsets
+			neighbours[i] = DIRECTIONS[i][1] * stride + DIRECTIONS[i][0];
+		}
+		
+		cells = new AtomicIntegerArray(stride * (rows + 2));
+	}
+	
+	/**
+	 * Hide all tiles and randomize mine locations in the board using given seed.
+	 * This isn't thread safe, call it before threads start playing.
+	 * 
+	 * @param seed seed for random mine locations
+	 */
+	public void randomize(long seed) {
+		
+		for(int c = 0; c < cells.length(); c++) { // initialise tiles: border as sentinel tiles, others as hidden
+			
+			int x = c % stride;
+			int y = c / stride;
+			cells.set(c, (y == 0 || y == rows + 1 || x == 0 || x == stride - 1) ? SENTINEL : HIDDEN);
+		}
+		
+		Random random = new Random(seed);
+		int placed = 0;
+		
+		while(placed < mines) { // randomize mine locations, skip tiles that already have a mine
+			
+			int pos = random.nextInt(columns * rows);
+			int c = this.index(pos % columns, pos / columns);
+			
+			if((cells.get(c) & MINE) == 0) {
+				
+				cells.set(c, cells.get(c) | MINE);
+				placed++;
+			}
+		}
+		
+		safeLeft.reset();
+		safeLeft.add((long)columns * rows - mines);
+		exploded = false;
+	}
+	
+	/**
+	 * Check and set how many mines surround each tile in game board. Rows are counted in parallel.
+	 * This isn't thread safe, call it before threads start playing.
+	 */
+	public void setSurroundAll() {
+		
+		IntStream.range(0, rows).parallel().forEach(y -> { // rows only write their own tiles and mines don't move
+			
+			for(int x = 0; x < columns; x++) {
+				
+				int c = this.index(x, y);
+				int b = cells.get(c);
+				
+				if((b & MINE) == 0) cells.set(c, (b & ~SURROUND) | this.countMines(c)); // save surround value of non mine tiles
+			}
+		});
+	}
+	
+	private int countMines(int c) { // count mines surrounding tile at index, border tiles are never mines
+		
+		int count = 0;
+		
+		for(int offset : neighbours) {
+			
+			count += (cells.get(c + offset) & MINE) >>> 4;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Reveal tile at given position, empty tile also reveals its neighbouring empty tiles.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @return false if tile was a mine, true otherwise (also if someone else had already revealed the tile)
+	 */
+	public boolean reveal(int x, int y) {
+		
+		return this.reveal(this.index(x, y));
+	}
+	
+	private boolean reveal(int c) { // reveal tile at index, only thread that reveals empty tile reveals its neighbours
+		
+		if(!this.change(c, State.HIDDEN, State.REVEALED)) return true; // tile wasn't hidden anymore
+		
+		int b = cells.get(c);
+		
+		if((b & MINE) != 0) {
+			
+			exploded = true;
+			return false;
+		}
+		
+		if((b & SURROUND) == 0) this.revealEmpty(c);
+		return true;
+	}
+	
+	private void revealEmpty(int start) { // reveal empty tiles connected to already revealed empty tile at index
+		
+		int[] queue = new int[64]; // queue of this thread, grows when needed
+		int size = 0;
+		queue[size++] = start;
+		
+		while(size > 0) { // loop until no connected empty tiles remain
+			
+			int temp = queue[--size]; // remove this tile from queue (it is now "visited")
+			
+			for(int i = 0; i < 4; i++) { // check for vertical and horizontal neighbours
+				
+				int c = temp + neighbours[i];
+				int b = cells.get(c);
+				
+				// if tile is empty and this thread revealed it -> add it into queue (border tiles are never hidden)
+				if((b & SURROUND) == 0 && (b & MINE) == 0 && this.change(c, State.HIDDEN, State.REVEALED)) {
+					
+					if(size == queue.length) queue = Arrays.copyOf(queue, size * 2);
+					queue[size++] = c;
+				}
+			}
+			for(int offset : neighbours) { // reveal edge tiles (non empty ones)
+				
+				int b = cells.get(temp + offset);
+				
+				if((b & SURROUND) > 0 && (b & SURROUND) != NO_SURROUND) this.change(temp + offset, State.HIDDEN, State.REVEALED);
+			}
+		}
+	}
+	
+	/**
+	 * Reveal all surrounding tiles at given position, if there is non flagged tile containing a mine return gameover boolean.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @return true if no gameover happened, false if there was non flagged mine
+	 * 
+	 * @see Board#revealSurround(int, int)
+	 */
+	public boolean revealSurround(int x, int y) {
+		
+		int c = this.index(x, y);
+		
+		for(int offset : neighbours) { // check if there is any surrounding tiles that were mines and weren't flagged
+			
+			int b = cells.get(c + offset);
+			if((b & MINE) != 0 && state(b) != State.FLAGGED) return false;
+		}
+		
+		boolean safe = true;
+		
+		for(int offset : neighbours) { // no unflagged mines were found -> reveal all hidden surrounding tiles (flag may have been removed meanwhile)
+			
+			safe &= this.reveal(c + offset);
+		}
+		
+		return safe;
+	}
+	
+	/**
+	 * Flag all surrounding tiles at given position if surrounding hidden tiles plus flagged tiles equal to tiles surround value.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @see Board#flagSurround(int, int)
+	 */
+	public void flagSurround(int x, int y) {
+		
+		int c = this.index(x, y);
+		int count = 0;
+		
+		for(int offset : neighbours) { // counts how many hidden tiles and flagged tiles surround given tile
+			
+			State s = state(cells.get(c + offset));
+			count += (s == State.HIDDEN || s == State.FLAGGED) ? 1 : 0;
+		}
+		if(count == this.getSurround(x, y)) { // flag tiles only if count of hidden tiles + flagged tiles is equal to mine amount
+			
+			for(int offset : neighbours) this.change(c + offset, State.HIDDEN, State.FLAGGED);
+		}
+	}
+	
+	/**
+	 * Toggle flag of tile at given position: hidden becomes flagged and flagged becomes hidden.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * 
+	 * @return state of tile after toggle, or current state if tile was revealed
+	 */
+	public State toggleFlag(int x, int y) {
+		
+		int c = this.index(x, y);
+		
+		while(true) { // retry if someone else changed the tile between reading and changing it
+			
+			State s = state(cells.get(c));
+			
+			if(s == State.HIDDEN && this.change(c, State.HIDDEN, State.FLAGGED)) return State.FLAGGED;
+			else if(s == State.FLAGGED && this.change(c, State.FLAGGED, State.HIDDEN)) return State.HIDDEN;
+			else if(s != State.HIDDEN && s != State.FLAGGED) return s;
+		}
+	}
+	
+	private boolean change(int c, State from, State to) { // atomically change state of tile at index, fails if tile isn't in state "from"
+		
+		while(true) {
+			
+			int b = cells.get(c);
+			
+			if(state(b) != from) return false;
+			
+			if(cells.compareAndSet(c, b, (b & ~STATE) | (to.ordinal() << STATE_SHIFT))) { // only state bits ever change, so CAS fails only if state changed
+				
+				// revealed tile never changes back, so counter only goes down and it is changed by the one thread that won the CAS
+				if(to == State.REVEALED && (b & MINE) == 0) safeLeft.decrement();
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Check if players have won the game: every tile without a mine is revealed. Unlike {@link Board#gameWin()} mines don't need to be flagged,
+	 * a flag can be toggled back and forth by other threads, so it can't be part of a win that is checked without a lock.
+	 * <p>
+	 * Counter of safe tiles left only goes down and it is decremented after the tile was revealed,
+	 * so {@link LongAdder#sum()} during concurrent reveals is never below the real count and win is never reported too early.
+	 * 
+	 * @return have players won the game
+	 */
+	public boolean gameWin() {
+		
+		return !exploded && safeLeft.sum() == 0; // once this is true it stays true (unless someone reveals a mine)
+	}
+	
+	/**
+	 * Check if someone has revealed a mine.
+	 * 
+	 * @return has a mine been revealed
+	 */
+	public boolean isExploded() {
+		
+		return exploded;
+	}
+	
+	private static State state(int b) { // unpack state from tile
+		
+		return STATES[(b & STATE) >>> STATE_SHIFT];
+	}
+	
+	private int index(int x, int y) { // index of tile in bordered board
+		
+		return (y + 1) * stride + x + 1;
+	}
+	
+	/**
+	 * Get state of tile at given position.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return state of tile
+	 */
+	public State getState(int x, int y) {
+		
+		return state(cells.get(this.index(x, y)));
+	}
+	/**
+	 * Check if tile at given position contains a mine.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return does tile contain a mine
+	 */
+	public boolean isMine(int x, int y) {
+		
+		return (cells.get(this.index(x, y)) & MINE) != 0;
+	}
+	/**
+	 * Get how many mines surround tile at given position.
+	 * 
+	 * @param x x-coordinate of tile
+	 * @param y y-coordinate of tile
+	 * @return amount of mines, -1 if tile is a mine or surround values haven't been set
+	 */
+	public int getSurround(int x, int y) {
+		
+		int s = cells.get(this.index(x, y)) & SURROUND;
+		return s == NO_SURROUND ? -1 : s;
+	}
+	/**
+	 * Get how many tiles without a mine aren't revealed yet. During concurrent reveals the value can be higher than the real count, never lower.
+	 * 
+	 * @return amount of safe tiles left
+	 */
+	public long getSafeLeft() {
+		
+		return safeLeft.sum();
+	}
+	/**
+	 * Get board width in tiles.
+	 * 
+	 * @return amount of columns
+	 */
+	public int getColumns() {
+		
+		return columns;
+	}
+	/**
+	 * Get board height in tiles.
+	 * 
+	 * @return amount of rows
+	 */
+	public int getRows() {
+		
+		return rows;
+	}
+	/**
+	 * Get how many mines board has.
+	 * 
+	 * @return amount of mines
+	 */
+	public int getMines() {
+		
+		return mines;
+	}
+}
\ No newline at end of file
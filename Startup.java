@@ -0,0 +1,201 @@
+package minesweeper;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Slow work that has to be done before the first game can be played: reading records from file
+ * and generating the first board (with mines and surround values).
+ * <p>
+ * Both tasks run at the same time on their own background threads, so the window shows its first frame right away
+ * and animation thread only draws placeholders until they are done. Results are taken on animation thread,
+ * so game state is still changed by one thread only.
+ * <p>
+ * Startup is measured from launch of the program: time to first frame, time to playable game
+ * and how long each task took.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Program
+ */
+public class Startup {
+	
+	private long launch; // when program was launched, from System.nanoTime()
+	private ExecutorService workers; // threads that run startup tasks
+	private Future<HashMap<String, Integer>> records; // records read from file
+	private Future<Board> board; // first board of the game
+	
+	private volatile long recordsTime = -1; // how long reading records took in nanoseconds
+	private volatile long boardTime = -1; // how long generating first board took in nanoseconds
+	private long firstFrame = -1; // nanoseconds from launch to first frame, -1 if no frame has been drawn
+	private long playable = -1; // nanoseconds from launch to playable game, -1 if game isn't playable yet
+	
+	/**
+	 * Start reading records and generating first board on background threads.
+	 * 
+	 * @param launch when program was launched, from System.nanoTime()
+	 * @param records task that reads records, it should handle missing file itself
+	 * @param board task that generates first board
+	 */
+	public Startup(long launch, Callable<HashMap<String, Integer>> records, Callable<Board> board) {
+		
+		this.launch = launch;
+		
+		AtomicInteger count = new AtomicInteger();
+		
+		workers = Executors.newFixedThreadPool(2, r -> {
+			
+			Thread t = new Thread(r, "startup-" + count.incrementAndGet());
+			t.setDaemon(true); // startup doesn't keep program running
+			return t;
+		});
+		
+		this.records = workers.submit(() -> {
+			
+			long start = System.nanoTime();
+			try {
+				
+				return records.call();
+			
+			} finally {
+				
+				recordsTime = System.nanoTime() - start;
+			}
+		});
+		this.board = workers.submit(() -> {
+			
+			long start = System.nanoTime();
+			try {
+				
+				return board.call();
+			
+			} finally {
+				
+				boardTime = System.nanoTime() - start;
+			}
+		});
+		workers.shutdown(); // threads end when both tasks are done
+	}
+	
+	/**
+	 * Check if both tasks are done, after this results can be taken without waiting.
+	 * 
+	 * @return are records and first board ready
+	 */
+	public boolean isReady() {
+		
+		return records.isDone() && board.isDone();
+	}
+	
+	/**
+	 * Get records that were read. Waits until they are ready.
+	 * 
+	 * @return records, null if reading them failed
+	 */
+	public HashMap<String, Integer> getRecords() {
+		
+		return this.result(records, "Couldn't read records on startup.");
+	}
+	
+	/**
+	 * Get first board. Waits until it is ready.
+	 * 
+	 * @return board with mines and surround values set, null if generating it failed
+	 */
+	public Board getBoard() {
+		
+		return this.result(board, "Couldn't generate first board on startup.");
+	}
+	
+	private <T> T result(Future<T> task, String error) { // result of task, null if it failed
+		
+		try {
+			
+			return task.get();
+		
+		} catch(InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			return null;
+		
+		} catch(ExecutionException e) {
+			
+			System.err.println(error);
+			e.getCause().printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Tell that a frame has been drawn, first call sets time to first frame.
+	 */
+	public void frameDrawn() {
+		
+		if(firstFrame < 0) firstFrame = System.nanoTime() - launch;
+	}
+	
+	/**
+	 * Tell that first game is playable, sets time to playable game.
+	 */
+	public void playable() {
+		
+		if(playable < 0) playable = System.nanoTime() - launch;
+	}
+	
+	/**
+	 * Stop tasks that haven't finished yet.
+	 */
+	public void shutdown() {
+		
+		workers.shutdownNow();
+	}
+	
+	/**
+	 * Get time from launch to first frame.
+	 * 
+	 * @return time in nanoseconds, -1 if no frame has been drawn
+	 */
+	public long getFirstFrame() {
+		
+		return firstFrame;
+	}
+	/**
+	 * Get time from launch to playable game.
+	 * 
+	 * @return time in nanoseconds, -1 if game isn't playable yet
+	 */
+	public long getPlayable() {
+		
+		return playable;
+	}
+	/**
+	 * Get how long reading records took.
+	 * 
+	 * @return time in nanoseconds, -1 if it hasn't finished
+	 */
+	public long getRecordsTime() {
+		
+		return recordsTime;
+	}
+	/**
+	 * Get how long generating first board took.
+	 * 
+	 * @return time in nanoseconds, -1 if it hasn't finished
+	 */
+	public long getBoardTime() {
+		
+		return boardTime;
+	}
+	
+	@Override
+	public String toString() { // startup times in milliseconds
+		
+		return "Startup: first frame " + firstFrame / 1000000 + " ms, playable " + playable / 1000000 + " ms (records "
+				+ recordsTime / 1000000 + " ms, first board " + boardTime / 1000000 + " ms)";
+	}
+}
\ No newline at end of file
@@ -9,6 +9,9 @@ import java.awt.Point;
  */
 public class Tile {
 	
+	/** surround value of tile that hasn't been counted yet */
+	public static final int NOT_COMPUTED = -2;
+	
 	private Point position; // position of tile in board (column, row)
 	private Point resolution; // width and height of tile in pixels
 	private int surround = -1; // how many mines surround tile
@@ -60,6 +63,17 @@ public class Tile {
 		
 		return surround;
 	}
+	/**
+	 * Get stored surround value without counting it, {@link #NOT_COMPUTED} if it hasn't been counted yet.
+	 * 
+	 * @return amount of mines
+	 * 
+	 * @see LazyTile
+	 */
+	int peekSurround() {
+		
+		return surround;
+	}
 	/**
 	 * Set how many mines surround the tile.
 	 * 
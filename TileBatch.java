@@ -0,0 +1,224 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PShape;
+
+/**
+ * Renders all tiles of game board in batches. Board is split into chunks of {@value #CHUNK} x {@value #CHUNK} tiles and tiles of a chunk
+ * are grouped by how they look (hidden, flagged, revealed, revealed mine). Every group of every chunk is one retained PShape,
+ * so one frame draws a few shapes per chunk instead of setting fill and stroke for every tile.
+ * <p>
+ * Batch listens to tile changes of the board and builds again only the groups that a changed tile left or joined, and only in its chunk,
+ * so a click on a huge board goes through at most a few chunks instead of every tile.
+ * Surround values and mine symbols are drawn after shapes, fill is set once for every value.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see TileGraphics
+ */
+public class TileBatch implements TileListener {
+	
+	private static final int HIDDEN = 0; // group of hidden tiles
+	private static final int FLAGGED = 1; // group of flagged tiles
+	private static final int REVEALED = 2; // group of revealed tiles without mine
+	private static final int MINE = 3; // group of revealed mines
+	private static final int GROUPS = 4;
+	private static final int CHUNK = 32; // chunk width and height in tiles
+	
+	private PApplet p; // parent PApplet which we draw stuff into
+	private TileGraphics graphics; // colors and text size of tiles
+	private int xOff; // x offset in pixels
+	private int yOff; // y offset in pixels
+	private int[] fills = new int[GROUPS]; // fill color of every group
+	
+	private Board board; // board that is drawn
+	private Tile[][] tiles; // tiles that shapes were built from, new array means new board
+	private int chunkColumns; // how many chunks one row of chunks has
+	private PShape[][] shapes; // shape of every group in every chunk [chunk][group], null if chunk has no tiles of group
+	private boolean[][] dirty; // has membership of group in chunk changed after its shape was built [chunk][group]
+	
+	private int[][][] values; // revealed tiles of every surround value 1-8 (index 9 is mines) in every chunk [chunk][value], as y * columns + x
+	private int[][] valueCount; // how many tiles every value list has [chunk][value]
+	
+	/**
+	 * Renders all tiles of game board in batches.
+	 * 
+	 * @param p PApplet frame where graphics are drawn to
+	 * @param graphics tile renderer that gives colors and text size
+	 * @param padding padding around the board in pixels
+	 */
+	public TileBatch(PApplet p, TileGraphics graphics, int[] padding) {
+		
+		this.p = p;
+		this.graphics = graphics;
+		this.xOff = padding[2];
+		this.yOff = padding[0];
+		
+		fills[HIDDEN] = p.color(220); // RGB color of tile (220,220,220)
+		fills[FLAGGED] = p.color(200, 0, 10);
+		fills[REVEALED] = p.color(20); // RGB color of tile (20,20,20)
+		fills[MINE] = p.color(40, 8, 1);
+	}
+	
+	/**
+	 * Draw all tiles of board. Shapes are built again if board has changed, otherwise only groups with changed tiles are built.
+	 * 
+	 * @param b board that is drawn
+	 */
+	public void draw(Board b) {
+		
+		if(b != board) { // board was swapped -> follow new board
+			
+			if(board != null) board.removeTileListener(this);
+			b.addTileListener(this);
+			board = b;
+			tiles = null;
+		}
+		
+		if(tiles != board.getTiles()) this.chunks(board.getTiles()); // new tiles (new game) -> build everything
+		
+		for(int k = 0; k < shapes.length; k++) {
+			for(int g = 0; g < GROUPS; g++) {
+				
+				if(dirty[k][g]) this.build(k, g);
+				if(shapes[k][g] != null) p.shape(shapes[k][g]); // one draw per group of chunk
+			}
+		}
+		
+		this.drawValues();
+	}
+	
+	@Override
+	public void tileChanged(int x, int y, State from, State to) { // tile left one group and joined another in its chunk
+		
+		if(tiles == null || tiles != board.getTiles()) return; // new tiles, everything is built on next frame anyway
+		
+		boolean mine = tiles[y][x].isMine();
+		int k = (y / CHUNK) * chunkColumns + x / CHUNK;
+		
+		dirty[k][group(from, mine)] = true;
+		dirty[k][group(to, mine)] = true;
+	}
+	
+	private void chunks(Tile[][] t) { // split new tiles into chunks, all chunks are built again
+		
+		tiles = t;
+		
+		int columns = tiles.length > 0 ? tiles[0].length : 0;
+		int count = ((tiles.length + CHUNK - 1) / CHUNK) * ((columns + CHUNK - 1) / CHUNK);
+		chunkColumns = (columns + CHUNK - 1) / CHUNK;
+		
+		if(shapes == null || shapes.length != count) { // same board size as last game -> arrays are reused
+			
+			shapes = new PShape[count][GROUPS];
+			dirty = new boolean[count][GROUPS];
+			values = new int[count][10][];
+			valueCount = new int[count][10];
+		}
+		
+		for(boolean[] d : dirty) Arrays.fill(d, true);
+	}
+	
+	private static int group(State s, boolean mine) { // group of tile, NONE tiles aren't drawn and belong to no real group
+		
+		switch(s) {
+			case HIDDEN:   return HIDDEN;
+			case FLAGGED:  return FLAGGED;
+			case REVEALED: return mine ? MINE : REVEALED;
+			default:       return HIDDEN;
+		}
+	}
+	
+	private void build(int k, int g) { // build shape of group in chunk from its tiles
+		
+		PShape s = p.createShape();
+		s.beginShape(PConstants.QUADS);
+		s.strokeWeight(1); // outer stroke width in pixels
+		s.stroke(0); // outer stroke color in RGB (0,0,0)
+		s.fill(fills[g]);
+		
+		if(g == REVEALED) for(int v = 1; v <= 8; v++) valueCount[k][v] = 0; // values are collected while revealed tiles are gone through
+		if(g == MINE) valueCount[k][9] = 0;
+		
+		int x0 = (k % chunkColumns) * CHUNK; // first tile column of chunk
+		int y0 = (k / chunkColumns) * CHUNK; // first tile row of chunk
+		int quads = 0;
+		
+		for(int ty = y0; ty < Math.min(y0 + CHUNK, tiles.length); ty++) {
+			
+			Tile[] row = tiles[ty];
+			
+			for(int tx = x0; tx < Math.min(x0 + CHUNK, row.length); tx++) {
+				
+				Tile t = row[tx];
+				
+				if(t.getState() == State.NONE || group(t.getState(), t.isMine()) != g) continue;
+				
+				Point tPos = t.getPosition(); // position of tile in columns / rows
+				Point tRes = t.getResolution(); // width and height of tile in pixels
+				
+				float x = tPos.x * tRes.x + (float)0.01 + xOff; // same rectangle as TileGraphics draws
+				float y = tPos.y * tRes.y + (float)0.01 + yOff;
+				float w = tRes.x - (float)0.02;
+				float h = tRes.y - (float)0.02;
+				
+				s.vertex(x, y);
+				s.vertex(x + w, y);
+				s.vertex(x + w, y + h);
+				s.vertex(x, y + h);
+				
+				quads++;
+				
+				if(g == REVEALED && t.getSurround() > 0) this.addValue(k, t.getSurround(), tPos.y * row.length + tPos.x);
+				if(g == MINE) this.addValue(k, 9, tPos.y * row.length + tPos.x);
+			}
+		}
+		
+		s.endShape();
+		shapes[k][g] = quads > 0 ? s : null; // empty groups aren't drawn
+		dirty[k][g] = false;
+	}
+	
+	private void addValue(int k, int v, int pos) { // add tile to value list of chunk, list grows when needed
+		
+		int[][] list = values[k];
+		int[] count = valueCount[k];
+		
+		if(list[v] == null) list[v] = new int[16];
+		if(count[v] == list[v].length) list[v] = Arrays.copyOf(list[v], count[v] * 2);
+		
+		list[v][count[v]++] = pos;
+	}
+	
+	private void drawValues() { // draw surround values and mine symbols, fill changes once per value
+		
+		p.textAlign(PConstants.LEFT, PConstants.TOP); // text alignment
+		p.textSize(graphics.getTextSize()); // size of the font
+		p.noStroke(); // no outer stroke
+		
+		int columns = tiles.length > 0 ? tiles[0].length : 1;
+		
+		for(int v = 1; v <= 9; v++) {
+			
+			if(v == 9) p.fill(255, 22, 22); // color of mine symbol
+			else p.fill(graphics.getPackedColor(v)); // color of the text
+			
+			for(int k = 0; k < values.length; k++) {
+				for(int i = 0; i < valueCount[k][v]; i++) {
+					
+					Tile t = tiles[values[k][v][i] / columns][values[k][v][i] % columns];
+					Point tRes = t.getResolution();
+					
+					float x = t.getPosition().x * tRes.x + tRes.x/(float)3.5 + xOff; // same position as TileGraphics draws text
+					float y = t.getPosition().y * tRes.y + tRes.y/(float)10.0 + yOff;
+					
+					p.text(v == 9 ? "X" : TileGraphics.VALUES[v], x, y);
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
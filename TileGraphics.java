@@ -17,6 +17,11 @@ public class TileGraphics {
 	private int yOff; // y offset in pixels
 	private int tSize; // text size
 	
+	// RGB colors of surround values 1-8, index 0 is used for values outside that range
+	static final int[][] COLORS = {{241, 138, 47}, {88, 218, 244}, {87, 244, 197}, {87, 244, 134}, {141, 239, 71}, {213, 239, 71}, {239, 219, 71}, {242, 184, 48}, {241, 138, 47}};
+	static final String[] VALUES = {"0", "1", "2", "3", "4", "5", "6", "7", "8"}; // surround values as text, so drawing doesn't create strings
+	private int[] packed = new int[COLORS.length]; // COLORS as packed color values of the PApplet
+	
 	/**
 	 * Renders tile related graphics to PApplet frame
 	 * 
@@ -30,6 +35,10 @@ public class TileGraphics {
 		this.p = p;
 		this.xOff = padding[2];
 		this.yOff = padding[0];
+		
+		for(int i = 0; i < COLORS.length; i++) { // pack colors once instead of every frame
+			packed[i] = p.color(COLORS[i][0], COLORS[i][1], COLORS[i][2]);
+		}
 	}
 	/**
 	 * Draw value of tile to the center of the given tile (value=surround value or mine symbol)
@@ -52,11 +61,8 @@ public class TileGraphics {
 		
 		if(!t.isMine()) { // tile isn't a mine -> draw surround value
 			if(t.getSurround() != 0) { // if tile has surrounding mines -> draw surround value
-				int[] cVals = this.getColor(t.getSurround()); // get color based on surround value
-				int c = p.color(cVals[0], cVals[1], cVals[2]); // value as color type
-				
-				p.fill(c); // color of the text
-				p.text(Integer.toString(t.getSurround()), xPos + xOff, yPos + yOff); // draw surround value as text
+				p.fill(this.getPackedColor(t.getSurround())); // color of the text
+				p.text(t.getSurround() < VALUES.length ? VALUES[t.getSurround()] : Integer.toString(t.getSurround()), xPos + xOff, yPos + yOff); // draw surround value as text
 			}
 		} else {
 			
@@ -116,20 +122,21 @@ public class TileGraphics {
 	 * Get RGB value based on amount of surrounding mines
 	 * 
 	 * @param value amount of mines
-	 * @return RGB color as array
+	 * @return RGB color as new array, drawing uses {@link #getPackedColor(int)} which doesn't allocate
 	 */
 	public int[] getColor(int value) {
 		
-		switch(value) { // check color value based on amount of mines
-			case 1:  return new int[] {88, 218, 244};
-			case 2:  return new int[] {87, 244, 197};
-			case 3:  return new int[] {87, 244, 134};
-			case 4:  return new int[] {141, 239, 71};
-			case 5:  return new int[] {213, 239, 71};
-			case 6:  return new int[] {239, 219, 71};
-			case 7:  return new int[] {242, 184, 48};
-			default: return new int[] {241, 138, 47};
-		}
+		return ((value >= 1 && value <= 8) ? COLORS[value] : COLORS[0]).clone(); // copy, so caller can't change colors of every tile
+	}
+	/**
+	 * Get packed color value based on amount of surrounding mines
+	 * 
+	 * @param value amount of mines
+	 * @return color that can be given to fill()
+	 */
+	public int getPackedColor(int value) {
+		
+		return (value >= 1 && value <= 8) ? packed[value] : packed[0];
 	}
 	/**
 	 * Get current text size
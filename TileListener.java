@@ -0,0 +1,21 @@
+package minesweeper;
+
+/**
+ * Listener for changes of tile states in game board.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board#addTileListener(TileListener)
+ */
+public interface TileListener {
+	
+	/**
+	 * Called after state of tile has changed.
+	 * 
+	 * @param x x-coordinate of tile (column)
+	 * @param y y-coordinate of tile (row)
+	 * @param from state before change
+	 * @param to state after change
+	 */
+	void tileChanged(int x, int y, State from, State to);
+}
\ No newline at end of file
@@ -0,0 +1,251 @@
+package minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Decides which tiles are neighbours: rectangular grid, grid that wraps around its edges, hexagonal grid or arbitrary graph.
+ * <p>
+ * Tiles are always stored as columns and rows, topology only changes which of them touch.
+ * Topology is compiled once for board size into {@link Adjacency}, after that game logic only reads its arrays.
+ * Last compiled adjacency is kept, so boards of the same size share it.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Adjacency
+ * @see Board#setTopology(Topology)
+ */
+public abstract class Topology {
+	
+	// directions (column, row), four first ones are vertical and horizontal neighbours
+	private static final int[][] SQUARE = {{0,-1}, {-1,0}, {1,0}, {0,1}, {-1,-1}, {1,-1}, {-1,1}, {1,1}};
+	// hexagons in rows where odd rows are pushed half a tile right
+	private static final int[][] HEX_EVEN = {{-1,0}, {1,0}, {-1,-1}, {0,-1}, {-1,1}, {0,1}};
+	private static final int[][] HEX_ODD = {{-1,0}, {1,0}, {0,-1}, {1,-1}, {0,1}, {1,1}};
+	// surround values are drawn and counted from 0 to 8, so no tile can have more neighbours
+	private static final int MAX_DEGREE = 8;
+	
+	/**
+	 * Rectangular grid, every tile touches eight tiles around it. Flood fill spreads vertically and horizontally.
+	 */
+	public static final Topology RECTANGLE = new Grid("rectangle", SQUARE, SQUARE, 4, false);
+	/**
+	 * Rectangular grid where left edge touches right edge and top edge touches bottom edge.
+	 */
+	public static final Topology TORUS = new Grid("torus", SQUARE, SQUARE, 4, true);
+	/**
+	 * Hexagonal grid stored in rows, every tile touches six tiles. Flood fill spreads to all of them.
+	 */
+	public static final Topology HEXAGONAL = new Grid("hexagonal", HEX_EVEN, HEX_ODD, 6, false);
+	
+	private String name; // name of topology
+	private Adjacency last; // last compiled adjacency
+	
+	protected Topology(String name) {
+		
+		this.name = name;
+	}
+	
+	/**
+	 * Arbitrary graph of tiles. Edges connect both ways and flood fill spreads along all of them.
+	 * Same pair given more than once (in either order) is one edge, and edge from tile to itself is ignored.
+	 * Like on other topologies, a tile can have at most eight neighbours.
+	 * 
+	 * @param name name of topology
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @param edges pairs of connected tiles, tile is y * columns + x
+	 * @return topology of the graph, it can only be compiled for given board size
+	 */
+	public static Topology graph(String name, int columns, int rows, int[][] edges) {
+		
+		return new Graph(name, columns, rows, edges);
+	}
+	
+	/**
+	 * Compile neighbours of every tile for board size. Returns the same adjacency again if size hasn't changed.
+	 * 
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @return neighbours of every tile
+	 */
+	public synchronized Adjacency compile(int columns, int rows) {
+		
+		if(last == null || last.getColumns() != columns || last.getRows() != rows) last = this.build(columns, rows);
+		return last;
+	}
+	
+	/**
+	 * Build neighbours of every tile for board size.
+	 * 
+	 * @param columns board width in tiles
+	 * @param rows board height in tiles
+	 * @return neighbours of every tile
+	 */
+	protected abstract Adjacency build(int columns, int rows);
+	
+	/**
+	 * Get name of topology.
+	 * 
+	 * @return name
+	 */
+	public String getName() {
+		
+		return name;
+	}
+	
+	private static class Grid extends Topology { // same directions for every tile (by row parity), optionally wrapping around edges
+		
+		private int[][] even; // directions in even rows
+		private int[][] odd; // directions in odd rows
+		private int spread; // how many first directions flood fill spreads to
+		private boolean wrap; // do edges wrap around
+		
+		Grid(String name, int[][] even, int[][] odd, int spread, boolean wrap) {
+			
+			super(name);
+			this.even = even;
+			this.odd = odd;
+			this.spread = spread;
+			this.wrap = wrap;
+		}
+		
+		@Override
+		protected Adjacency build(int columns, int rows) {
+			
+			int stride = columns + 2;
+			int[] row = new int[stride * (rows + 2)];
+			
+			// tiles with same column class (first, inner, last), row class and row parity have same offsets -> 18 rows at most
+			int[] classRow = new int[18];
+			int[] start = new int[20];
+			int[] spreads = new int[19];
+			int[] list = new int[18 * even.length];
+			int count = 1; // row 0 is empty row of border tiles
+			
+			for(int y = 0; y < rows; y++) {
+				for(int x = 0; x < columns; x++) {
+					
+					int k = ((y == 0 ? 0 : y == rows - 1 ? 2 : 1) * 3 + (x == 0 ? 0 : x == columns - 1 ? 2 : 1)) * 2 + (y & 1);
+					int c = (y + 1) * stride + x + 1;
+					
+					if(classRow[k] == 0) { // first tile of its class -> build its offsets
+						
+						int pos = start[count];
+						int[][] directions = (y & 1) == 0 ? even : odd;
+						
+						for(int d = 0; d < directions.length; d++) {
+							
+							int nx = x + directions[d][0];
+							int ny = y + directions[d][1];
+							
+							if(wrap) {
+								
+								nx = (nx + columns) % columns;
+								ny = (ny + rows) % rows;
+							}
+							else if(nx < 0 || ny < 0 || nx >= columns || ny >= rows) continue; // outside of the board
+							
+							int offset = (ny + 1) * stride + nx + 1 - c;
+							
+							boolean seen = offset == 0; // small wrapping board can reach tile itself or same tile twice
+							for(int i = start[count]; i < pos; i++) seen |= list[i] == offset;
+							if(seen) continue;
+							
+							list[pos++] = offset;
+							if(d < spread) spreads[count] = pos;
+						}
+						if(spreads[count] == 0) spreads[count] = start[count];
+						
+						start[count + 1] = pos;
+						classRow[k] = count++;
+					}
+					row[c] = classRow[k];
+				}
+			}
+			// without wrapping, offsets of inner tiles reach border tiles from the edges -> rectangle can use them for every tile
+			int inner = classRow[8] != 0 ? classRow[8] : classRow[9]; // inner tiles in even or odd row, board of three rows has only odd one
+			int shared = !wrap && even == odd && inner != 0 ? inner : -1;
+			return new Adjacency(columns, rows, row, Arrays.copyOf(start, count + 1), Arrays.copyOf(spreads, count), Arrays.copyOf(list, start[count]), shared);
+		}
+	}
+	
+	private static class Graph extends Topology { // neighbours listed for every tile
+		
+		private int columns; // board width the graph was made for
+		private int rows; // board height the graph was made for
+		private int[][] edges; // pairs of connected tiles
+		
+		Graph(String name, int columns, int rows, int[][] edges) {
+			
+			super(name);
+			this.columns = columns;
+			this.rows = rows;
+			this.edges = edges;
+		}
+		
+		@Override
+		protected Adjacency build(int columns, int rows) {
+			
+			if(columns != this.columns || rows != this.rows) {
+				
+				throw new IllegalArgumentException("Graph " + this.getName() + " is for " + this.columns + "x" + this.rows + " board, not " + columns + "x" + rows);
+			}
+			
+			int stride = columns + 2;
+			int tiles = columns * rows;
+			
+			// every pair once as smaller tile * tiles + larger tile, sorted so repeated and reversed pairs are next to each other
+			long[] pairs = new long[edges.length];
+			int count = 0;
+			
+			for(int[] e : edges) {
+				
+				if(e[0] == e[1]) continue; // tile isn't its own neighbour
+				pairs[count++] = (long)Math.min(e[0], e[1]) * tiles + Math.max(e[0], e[1]);
+			}
+			Arrays.sort(pairs, 0, count);
+			
+			int unique = 0;
+			for(int i = 0; i < count; i++) {
+				
+				if(i == 0 || pairs[i] != pairs[i - 1]) pairs[unique++] = pairs[i];
+			}
+			
+			int[] degree = new int[tiles + 1];
+			
+			for(int i = 0; i < unique; i++) { // count neighbours of every tile
+				
+				degree[(int)(pairs[i] / tiles) + 1]++;
+				degree[(int)(pairs[i] % tiles) + 1]++;
+			}
+			for(int t = 0; t < tiles; t++) {
+				
+				if(degree[t + 1] > MAX_DEGREE) throw new IllegalArgumentException("Tile " + t + " has more than " + MAX_DEGREE + " neighbours");
+				degree[t + 1] += degree[t];
+			}
+			
+			// row 0 is empty row of border tiles, tile t uses row t + 1
+			int[] start = new int[tiles + 2];
+			System.arraycopy(degree, 0, start, 1, tiles + 1);
+			int[] list = new int[start[tiles + 1]];
+			int[] fill = Arrays.copyOf(start, tiles + 1);
+			
+			for(int i = 0; i < unique; i++) { // edges connect both ways
+				
+				int ta = (int)(pairs[i] / tiles);
+				int tb = (int)(pairs[i] % tiles);
+				
+				int a = (ta / columns + 1) * stride + ta % columns + 1;
+				int b = (tb / columns + 1) * stride + tb % columns + 1;
+				list[fill[ta + 1]++] = b - a;
+				list[fill[tb + 1]++] = a - b;
+			}
+			
+			int[] row = new int[stride * (rows + 2)];
+			for(int t = 0; t < tiles; t++) row[(t / columns + 1) * stride + t % columns + 1] = t + 1;
+			
+			int[] spread = Arrays.copyOfRange(start, 1, tiles + 2); // flood fill spreads to all neighbours
+			return new Adjacency(columns, rows, row, start, spread, list, -1);
+		}
+	}
+}
\ No newline at end of file
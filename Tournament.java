@@ -0,0 +1,387 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.locks.StampedLock;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * Bot exhibition where several boards are played at the same time in one window.
+ * <p>
+ * Every board is played by a bot on its own thread, so simulation speed doesn't depend on frame rate of the window.
+ * After every move the bot copies changed tiles into a shared array of the match. The array is guarded by a sequence lock
+ * (StampedLock): render thread copies the array with an optimistic read and copies again only if a move was published during the copy,
+ * so bots never wait for drawing and drawing never sees half of a move. Render thread keeps its own tiles of every board
+ * and draws them with its own TileGraphics, which has the offsets of the board.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see HintEngine
+ * @see TileGraphics
+ */
+public class Tournament {
+	
+	private static final int MINE = 1 << 4; // tile has a mine, lowest 4 bits are surround value
+	private static final int STATE_SHIFT = 5; // state ordinal is stored above mine bit
+	private static final State[] STATES = State.values(); // states by ordinal
+	private static final int LABEL = 14; // height of result text above every board in pixels
+	private static final int GAP = 6; // space between boards in pixels
+	
+	private class Match implements TileListener { // one board, its bot thread and its snapshot
+		
+		// BOT THREAD ONLY
+		private Board board; // board that bot plays
+		private HintEngine bot = new HintEngine(new TranspositionCache<double[]>(1024, 1)); // finds moves, runs on bot thread
+		private int[] dirty; // tiles that have changed after last publish, as y * columns + x
+		private boolean[] isDirty;
+		private int dirtyCount = 0;
+		private int wins = 0;
+		private int losses = 0;
+		private int moves = 0;
+		
+		// SHARED BETWEEN THREADS
+		private StampedLock lock = new StampedLock(); // sequence lock of snapshot
+		private byte[] shared; // tiles as mine bit, surround value and state
+		private int[] sharedResults = new int[3]; // wins, losses and moves
+		private volatile long version = 0; // how many times snapshot has been published
+		
+		// RENDER THREAD ONLY
+		private byte[] front; // copy of snapshot that is drawn
+		private int[] results = new int[3];
+		private long seen = -1; // version that render tiles were built from
+		private Tile[] view; // tiles that are drawn
+		private TileGraphics graphics; // draws tiles with offsets of this board
+		private int[] pos = new int[2]; // top left corner of board in pixels
+		private Thread thread;
+		
+		Match(int index, int[] padding, Point resolution) {
+			
+			int n = columns * rows;
+			
+			board = new Board(resolution, new Point(columns, rows), mines, padding);
+			board.addTileListener(this);
+			dirty = new int[n];
+			isDirty = new boolean[n];
+			shared = new byte[n];
+			front = new byte[n];
+			view = new Tile[n];
+			
+			for(int i = 0; i < n; i++) view[i] = new Tile(new Point(i % columns, i / columns), resolution);
+			
+			graphics = new TileGraphics(p, padding);
+			graphics.setTextSize((int)(Math.max(resolution.x, resolution.y) * 0.7));
+			pos[0] = padding[2];
+			pos[1] = padding[0];
+			
+			thread = new Thread(this::play, "tournament-" + index);
+			thread.setDaemon(true); // bots don't keep program running
+		}
+		
+		@Override
+		public void tileChanged(int x, int y, State from, State to) { // called on bot thread while it plays
+			
+			int i = y * columns + x;
+			
+			if(!isDirty[i]) {
+				
+				isDirty[i] = true;
+				dirty[dirtyCount++] = i;
+			}
+		}
+		
+		private void play() { // bot loop, runs until tournament is stopped
+			
+			Random random = new Random(seed ^ thread.getName().hashCode()); // every board gets its own games
+			
+			try {
+				
+				while(running) {
+					
+					board.randomize(board.getResolution().x, board.getResolution().y, random.nextLong());
+					board.setSurroundAll();
+					this.publish(true);
+					
+					boolean over = false;
+					
+					while(running && !over) {
+						
+						HintEngine.Hint hint = bot.find(board);
+						
+						if(hint == null || hint.getX() < 0) break; // nothing to play, start new game
+						
+						int x = hint.getX();
+						int y = hint.getY();
+						board.protectFirstClick(x, y); // only first move of the game moves mines
+						Tile t = board.getTile(x, y);
+						
+						if(t.isMine()) { // bot hit a mine
+							
+							board.setTileState(x, y, State.REVEALED);
+							losses++;
+							over = true;
+						}
+						else if(t.getSurround() == 0) board.revealEmpty(x, y);
+						else board.setTileState(x, y, State.REVEALED);
+						
+						moves++;
+						
+						Frontier f = board.getFrontier();
+						if(!over && f.getHiddenTotal() == board.getMines() - f.getFlaggedTotal()) { // only mines are hidden -> flag them and win
+							
+							for(int yy = 0; yy < rows; yy++) {
+								for(int xx = 0; xx < columns; xx++) {
+									
+									if(board.getTile(xx, yy).getState() == State.HIDDEN) board.setTileState(xx, yy, State.FLAGGED);
+								}
+							}
+							wins++;
+							over = true;
+						}
+						
+						this.publish(false);
+						if(moveDelay > 0) Thread.sleep(moveDelay);
+					}
+					Thread.sleep(gameDelay); // let the end of the game be seen
+				}
+			
+			} catch(InterruptedException e) {
+				
+				// tournament was stopped
+			}
+		}
+		
+		private void publish(boolean all) { // copy changed tiles (or all tiles) into snapshot
+			
+			long stamp = lock.writeLock();
+			
+			try {
+				
+				if(all) for(int i = 0; i < shared.length; i++) shared[i] = this.encode(i);
+				else for(int i = 0; i < dirtyCount; i++) shared[dirty[i]] = this.encode(dirty[i]);
+				
+				sharedResults[0] = wins;
+				sharedResults[1] = losses;
+				sharedResults[2] = moves;
+			
+			} finally {
+				
+				lock.unlockWrite(stamp);
+			}
+			
+			for(int i = 0; i < dirtyCount; i++) isDirty[dirty[i]] = false;
+			dirtyCount = 0;
+			version++; // only bot thread writes version
+		}
+		
+		private byte encode(int i) { // tile as one byte
+			
+			Tile t = board.getTile(i % columns, i / columns);
+			return (byte)(t.getState().ordinal() << STATE_SHIFT | (t.isMine() ? MINE : 0) | t.getSurround() & 15);
+		}
+		
+		private void read() { // copy snapshot for drawing, runs on render thread
+			
+			long v = version;
+			if(v == seen) return; // nothing has been published after last copy
+			
+			long stamp = lock.tryOptimisticRead();
+			System.arraycopy(shared, 0, front, 0, front.length);
+			System.arraycopy(sharedResults, 0, results, 0, results.length);
+			
+			if(!lock.validate(stamp)) { // bot published during copy -> copy again while holding read lock
+				
+				stamp = lock.readLock();
+				
+				try {
+					
+					System.arraycopy(shared, 0, front, 0, front.length);
+					System.arraycopy(sharedResults, 0, results, 0, results.length);
+				
+				} finally {
+					
+					lock.unlockRead(stamp);
+				}
+			}
+			seen = v;
+			
+			for(int i = 0; i < view.length; i++) {
+				
+				view[i].setState(STATES[front[i] >>> STATE_SHIFT & 3]);
+				view[i].setMine((front[i] & MINE) != 0);
+				view[i].setSurround(front[i] & 15);
+			}
+		}
+		
+		private void draw() { // runs on render thread
+			
+			this.read();
+			
+			for(Tile t : view) {
+				
+				try {
+					
+					graphics.drawTile(t); // draw a tile
+				}
+				catch (CustomException e) {
+					
+					e.printStackTrace();
+					if(e.getType() == ExType.TILESTATE) {
+						
+						System.err.println("Error with tile state initialization");
+					}
+				}
+			}
+			
+			p.textAlign(PConstants.LEFT, PConstants.BOTTOM);
+			p.textSize(LABEL - 2);
+			p.fill(220);
+			p.text("W " + results[0] + "  L " + results[1] + "  moves " + results[2], pos[0], pos[1] - 1); // result text above the board
+		}
+	}
+	
+	private PApplet p; // parent PApplet which we draw stuff into
+	private int columns; // columns of every board
+	private int rows; // rows of every board
+	private int mines; // mines of every board
+	private long seed; // seed of all games
+	private Match[] matches;
+	
+	private volatile boolean running = false; // are bots playing
+	private volatile long moveDelay = 50; // pause after every move in milliseconds, 0 plays as fast as possible
+	private volatile long gameDelay = 1000; // pause after every game in milliseconds
+	
+	/**
+	 * Bot exhibition where several boards are played at the same time in one window.
+	 * Boards are laid out in a grid that fills the given area, tile size is the largest that fits.
+	 * 
+	 * @param p PApplet frame where graphics are drawn to
+	 * @param count amount of boards
+	 * @param boardSize columns and rows of every board
+	 * @param mines mines of every board
+	 * @param area area where boards are drawn in pixels (x, y, width, height)
+	 * @param seed seed of the games, same seed plays same games
+	 */
+	public Tournament(PApplet p, int count, Point boardSize, int mines, int[] area, long seed) {
+		
+		this.p = p;
+		this.columns = boardSize.x;
+		this.rows = boardSize.y;
+		this.mines = mines;
+		this.seed = seed;
+		
+		int gridColumns = (int)Math.ceil(Math.sqrt(count)); // as square grid as possible
+		int gridRows = (count + gridColumns - 1) / gridColumns;
+		int cellWidth = area[2] / gridColumns;
+		int cellHeight = area[3] / gridRows;
+		int tile = Math.max(1, Math.min((cellWidth - GAP) / columns, (cellHeight - GAP - LABEL) / rows)); // square tiles that fit into cell
+		
+		matches = new Match[count];
+		
+		for(int i = 0; i < count; i++) {
+			
+			int[] padding = new int[4];
+			padding[0] = area[1] + (i / gridColumns) * cellHeight + LABEL; // top, room for result text
+			padding[2] = area[0] + (i % gridColumns) * cellWidth; // left
+			
+			matches[i] = new Match(i, padding, new Point(tile, tile));
+		}
+	}
+	
+	/**
+	 * Start bots, every board is played on its own thread.
+	 */
+	public void start() {
+		
+		if(running) return;
+		running = true;
+		
+		for(Match m : matches) m.thread.start();
+	}
+	
+	/**
+	 * Stop bots and wait until their threads have ended. Stopped tournament can't be started again.
+	 */
+	public void stop() {
+		
+		running = false;
+		
+		for(Match m : matches) m.thread.interrupt();
+		
+		for(Match m : matches) {
+			
+			try {
+				
+				m.thread.join(1000);
+			
+			} catch(InterruptedException e) {
+				
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Draw latest published state of every board. Must be called on render thread.
+	 */
+	public void draw() {
+		
+		for(Match m : matches) m.draw();
+	}
+	
+	/**
+	 * Check if bots are playing.
+	 * 
+	 * @return are bots playing
+	 */
+	public boolean isRunning() {
+		
+		return running;
+	}
+	/**
+	 * Get amount of boards.
+	 * 
+	 * @return amount of boards
+	 */
+	public int getCount() {
+		
+		return matches.length;
+	}
+	/**
+	 * Get pause after every move.
+	 * 
+	 * @return pause in milliseconds
+	 */
+	public long getMoveDelay() {
+		
+		return moveDelay;
+	}
+	/**
+	 * Set pause after every move, changes speed of bots without changing frame rate.
+	 * 
+	 * @param moveDelay pause in milliseconds, 0 plays as fast as possible
+	 */
+	public void setMoveDelay(long moveDelay) {
+		
+		this.moveDelay = moveDelay;
+	}
+	/**
+	 * Get pause after every game.
+	 * 
+	 * @return pause in milliseconds
+	 */
+	public long getGameDelay() {
+		
+		return gameDelay;
+	}
+	/**
+	 * Set pause after every game.
+	 * 
+	 * @param gameDelay pause in milliseconds
+	 */
+	public void setGameDelay(long gameDelay) {
+		
+		this.gameDelay = gameDelay;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package minesweeper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of solver results keyed by 64-bit hashes of board areas.
+ * <p>
+ * Keys are split into stripes by their low bits and every stripe has its own lock and its own least recently used order,
+ * so threads working on different areas rarely wait for each other. When stripe is full its least recently used result is evicted.
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @param <V> type of stored results
+ * 
+ * @see Board#hashArea(int[], int)
+ */
+public class TranspositionCache<V> {
+	
+	private Stripe<V>[] stripes; // stripes of the cache, amount is power of two
+	private int mask; // stripes - 1, selects stripe from low bits of key
+	
+	private LongAdder hits = new LongAdder(); // lookups that found a result
+	private LongAdder misses = new LongAdder(); // lookups that didn't find a result
+	private LongAdder evictions = new LongAdder(); // results removed to make room
+	
+	private static class Stripe<V> extends LinkedHashMap<Long, V> { // one part of the cache, locked by synchronizing on it
+		
+		private static final long serialVersionUID = 1L;
+		
+		private int capacity; // how many results stripe can hold
+		private LongAdder evictions; // eviction counter of the cache
+		
+		Stripe(int capacity, LongAdder evictions) {
+			
+			super(16, 0.75f, true); // access order -> least recently used result is eldest
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+			
+			if(size() <= capacity) return false;
+			
+			evictions.increment();
+			return true;
+		}
+	}
+	
+	/**
+	 * Bounded cache of solver results keyed by 64-bit hashes.
+	 * 
+	 * @param capacity how many results cache can hold in total
+	 * @param stripes how many separately locked stripes cache has, rounded up to power of two
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public TranspositionCache(int capacity, int stripes) {
+		
+		int n = 1;
+		while(n < stripes) n <<= 1; // round up to power of two
+		
+		this.stripes = new Stripe[n];
+		this.mask = n - 1;
+		
+		for(int i = 0; i < n; i++) {
+			this.stripes[i] = new Stripe<V>(Math.max(1, capacity / n), evictions);
+		}
+	}
+	
+	/**
+	 * Get stored result of hash.
+	 * 
+	 * @param key hash of board area
+	 * @return stored result, null if there wasn't one
+	 */
+	public V get(long key) {
+		
+		Stripe<V> s = this.stripe(key);
+		V value;
+		
+		synchronized(s) {
+			value = s.get(key);
+		}
+		
+		if(value != null) hits.increment();
+		else misses.increment();
+		
+		return value;
+	}
+	
+	/**
+	 * Store result of hash, least recently used result of the stripe is evicted if stripe is full.
+	 * 
+	 * @param key hash of board area
+	 * @param value result
+	 */
+	public void put(long key, V value) {
+		
+		Stripe<V> s = this.stripe(key);
+		
+		synchronized(s) {
+			s.put(key, value);
+		}
+	}
+	
+	/**
+	 * Remove all results. Metrics are kept.
+	 */
+	public void clear() {
+		
+		for(Stripe<V> s : stripes) {
+			synchronized(s) {
+				s.clear();
+			}
+		}
+	}
+	
+	private Stripe<V> stripe(long key) { // stripe of key, high bits are folded in so keys with equal low bits spread too
+		
+		return stripes[(int)(key ^ (key >>> 32)) & mask];
+	}
+	
+	/**
+	 * Get how many results cache holds.
+	 * 
+	 * @return amount of results
+	 */
+	public int getSize() {
+		
+		int size = 0;
+		
+		for(Stripe<V> s : stripes) {
+			synchronized(s) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+	/**
+	 * Get how many lookups found a result.
+	 * 
+	 * @return amount of hits
+	 */
+	public long getHits() {
+		
+		return hits.sum();
+	}
+	/**
+	 * Get how many lookups didn't find a result.
+	 * 
+	 * @return amount of misses
+	 */
+	public long getMisses() {
+		
+		return misses.sum();
+	}
+	/**
+	 * Get share of lookups that found a result.
+	 * 
+	 * @return hit rate between 0 and 1, 0 if there hasn't been lookups
+	 */
+	public double getHitRate() {
+		
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total > 0 ? (double)h / total : 0;
+	}
+	/**
+	 * Get how many results have been evicted to make room for new ones.
+	 * 
+	 * @return amount of evictions
+	 */
+	public long getEvictions() {
+		
+		return evictions.sum();
+	}
+}
\ No newline at end of file
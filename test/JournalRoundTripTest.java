@@ -0,0 +1,146 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Checks that game restored from {@link ActionJournal} after a crash is the game that was played: same tiles, same practice flag
+ * and same undo history. Game is played through {@link Program} input handling past {@link ActionJournal#CHECKPOINT_INTERVAL} moves,
+ * with undo used before the checkpoint, then journal is abandoned without closing it and game is restored on a new program.
+ * <p>
+ * Run with: java -cp &lt;classes&gt; minesweeper.JournalRoundTripTest
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see ActionJournal
+ * @see Program#restoreGame(ActionJournal.Game)
+ */
+public class JournalRoundTripTest {
+	
+	private static final long SEED = 20160502L; // seed of the board and of the moves
+	private static final int COLUMNS = 40, ROWS = 30, MINES = 240;
+	private static final int MOVES = ActionJournal.CHECKPOINT_INTERVAL + 60; // moves played before crash, checkpoint is in the middle
+	
+	public static void main(String[] args) throws Exception {
+		
+		Path path = Files.createTempFile("journal", ".bin");
+		
+		try {
+			
+			Program played = program(path);
+			played.journal.startGame(SEED, 0, COLUMNS, ROWS, MINES);
+			Board live = Program.gameBoard;
+			Random random = new Random(SEED);
+			
+			for(int move = 0; move < MOVES; move++) {
+				
+				if(move % 40 == 20 && move < ActionJournal.CHECKPOINT_INTERVAL) key(played, 'Z'); // undo only before checkpoint, so restored game knows it only from checkpoint
+				else click(played, random);
+				
+				check(!played.gameover && !played.victory, "game ended after move " + move + ", test needs a running game");
+			}
+			check(played.practice, "undo didn't make game a practice game");
+			
+			played.journal.sync(); // crash: moves are on disk, journal is never closed
+			
+			ActionJournal.Game saved = ActionJournal.read(path);
+			check(saved != null && !saved.isEnded(), "journal has no unfinished game");
+			check(saved.getMoves().size() < MOVES, "journal wasn't compacted into checkpoint");
+			
+			Program restored = program(path);
+			restored.saved = saved;
+			restored.useBoard(restored.loadBoard());
+			restored.restoreGame(saved);
+			
+			compare(live, Program.gameBoard, "after restore");
+			check(restored.practice, "restored game isn't practice game, its record would be saved");
+			
+			Board back = Program.gameBoard;
+			int undos = 0;
+			
+			while(true) { // same undo steps must exist in both games, back to checkpoint and no further
+				
+				Program.gameBoard = live;
+				boolean liveUndo = live.undo();
+				Program.gameBoard = back;
+				key(restored, 'Z');
+				
+				compare(live, back, "after undo " + (undos + 1));
+				if(!liveUndo) break;
+				undos++;
+			}
+			check(undos > 0 && undos <= MOVES - ActionJournal.CHECKPOINT_INTERVAL, undos + " undos after restore, expected moves after checkpoint at most");
+			
+			played.journal.close();
+			restored.journal.close();
+			
+			System.out.println("JournalRoundTripTest OK (" + undos + " undos back to checkpoint)");
+		
+		} finally {
+			
+			Files.deleteIfExists(path);
+			Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".tmp"));
+		}
+	}
+	
+	private static Program program(Path path) { // program without window, set up like startup does for the board size of the test
+		
+		Program p = new Program();
+		p.tileColumns = COLUMNS;
+		p.tileRows = ROWS;
+		p.tileWidth = 10;
+		p.tileHeight = 10;
+		p.mines = MINES;
+		p.inputs = new InputQueue(64);
+		p.recordTimes = new HashMap<String, Integer>();
+		p.journalFile = path;
+		p.journal = new ActionJournal(path, 50);
+		
+		Board board = new Board(new Point(p.tileWidth, p.tileHeight), new Point(COLUMNS, ROWS), MINES, p.padding);
+		board.setHistoryBudget(16 * 1024 * 1024); // same history as the game board of the program
+		board.randomize(p.tileWidth, p.tileHeight, SEED);
+		board.setSurroundAll();
+		
+		Program.gameBoard = board;
+		p.useBoard(board);
+		return p;
+	}
+	
+	private static void click(Program p, Random random) { // flag, unflag or reveal random tile that isn't a mine, like a player who doesn't lose
+		
+		int tile = random.nextInt(COLUMNS * ROWS);
+		Tile t = Program.gameBoard.getTile(tile % COLUMNS, tile / COLUMNS);
+		boolean reveal = !t.isMine() && t.getState() == State.HIDDEN && random.nextInt(4) == 0;
+		
+		p.inputs.offerMouse(0, 0, reveal ? Program.LEFT : Program.RIGHT, tile);
+		p.processInputs();
+	}
+	
+	private static void key(Program p, char key) {
+		
+		p.inputs.offerKey(key, 0);
+		p.processInputs();
+	}
+	
+	private static void compare(Board live, Board restored, String when) { // every tile must match
+		
+		for(int y = 0; y < ROWS; y++) {
+			for(int x = 0; x < COLUMNS; x++) {
+				
+				Tile a = live.getTile(x, y);
+				Tile b = restored.getTile(x, y);
+				
+				check(a.isMine() == b.isMine(), "mine differs at " + x + "," + y + " " + when);
+				check(a.getState() == b.getState(), "state at " + x + "," + y + " is " + b.getState() + ", expected " + a.getState() + " " + when);
+			}
+		}
+	}
+	
+	private static void check(boolean condition, String message) {
+		
+		if(!condition) throw new AssertionError(message);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks that {@link OffHeapBoard} plays exactly like {@link Board}: same seed gives same mines and surround values,
+ * and same seeded moves (reveals, flags, reveal and flag surround) give same tile states and same win.
+ * Also checks that closing the board frees its direct memory right away and that a file backed board continues its saved game.
+ * <p>
+ * Run with: java -cp &lt;classes&gt; minesweeper.OffHeapBoardParityTest
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see OffHeapBoard
+ * @see Board
+ */
+public class OffHeapBoardParityTest {
+	
+	private static final int[][] SIZES = {{9, 9, 10}, {30, 16, 99}, {200, 150, 6000}, {77, 311, 3000}}; // columns, rows, mines
+	
+	public static void main(String[] args) throws Exception {
+		
+		for(int[] size : SIZES) {
+			for(long seed = 1; seed <= 5; seed++) {
+				
+				parity(size[0], size[1], size[2], seed);
+			}
+		}
+		closeFrees();
+		reopen();
+		
+		System.out.println("OffHeapBoardParityTest OK");
+	}
+	
+	/**
+	 * Play same seeded moves on both boards and compare them after every move.
+	 */
+	private static void parity(int columns, int rows, int mines, long seed) throws Exception {
+		
+		Board board = new Board(new Point(1, 1), new Point(columns, rows), mines, new int[] {0, 0, 0, 0});
+		board.randomize(1, 1, seed);
+		board.setSurroundAll();
+		
+		try(OffHeapBoard offHeap = new OffHeapBoard(columns, rows, mines)) {
+			
+			offHeap.randomize(seed);
+			offHeap.setSurroundAll();
+			compare(board, offHeap, "after randomize, seed " + seed);
+			
+			Random random = new Random(seed);
+			
+			for(int move = 0; move < columns * rows; move++) {
+				
+				int x = random.nextInt(columns);
+				int y = random.nextInt(rows);
+				Tile t = board.getTile(x, y);
+				int op = random.nextInt(10);
+				
+				if(op < 6 && t.getState() == State.HIDDEN && !t.isMine()) { // reveal like a click does
+					
+					if(t.getSurround() == 0) {
+						
+						board.revealEmpty(x, y);
+						offHeap.revealEmpty(x, y);
+					
+					} else {
+						
+						board.setTileState(x, y, State.REVEALED);
+						offHeap.setTileState(x, y, State.REVEALED);
+					}
+				
+				} else if(op < 8 && t.getState() != State.REVEALED) { // toggle flag
+					
+					State s = t.getState() == State.HIDDEN ? State.FLAGGED : State.HIDDEN;
+					board.setTileState(x, y, s);
+					offHeap.setTileState(x, y, s);
+				
+				} else if(op == 8 && t.getState() == State.REVEALED) {
+					
+					check(board.revealSurround(x, y) == offHeap.revealSurround(x, y), "revealSurround differs at " + x + "," + y);
+				
+				} else if(op == 9 && t.getState() == State.REVEALED) {
+					
+					board.flagSurround(x, y);
+					offHeap.flagSurround(x, y);
+				}
+				
+				check(board.gameWin() == offHeap.gameWin(), "gameWin differs after move " + move + ", seed " + seed);
+				if(move % 97 == 0) compare(board, offHeap, "after move " + move + ", seed " + seed);
+			}
+			compare(board, offHeap, "after moves, seed " + seed);
+			
+			for(int y = 0; y < rows; y++) { // finish game: reveal every safe tile and flag every mine
+				for(int x = 0; x < columns; x++) {
+					
+					State s = board.getTile(x, y).isMine() ? State.FLAGGED : State.REVEALED;
+					board.setTileState(x, y, s);
+					offHeap.setTileState(x, y, s);
+				}
+			}
+			compare(board, offHeap, "after finishing, seed " + seed);
+			check(board.gameWin() && offHeap.gameWin(), "finished board isn't won, seed " + seed);
+		}
+	}
+	
+	/**
+	 * Direct memory used by the board must go back down when board is closed, without waiting for GC.
+	 */
+	private static void closeFrees() throws Exception {
+		
+		BufferPoolMXBean direct = null;
+		
+		for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			
+			if(pool.getName().equals("direct")) direct = pool;
+		}
+		check(direct != null, "direct buffer pool not found");
+		
+		long before = direct.getMemoryUsed();
+		
+		OffHeapBoard board = new OffHeapBoard(4000, 4000, 100000); // 16 MB of tiles
+		board.randomize(1);
+		board.setSurroundAll();
+		board.revealEmpty(0, 0); // reveal queue is off-heap too
+		
+		check(direct.getMemoryUsed() - before >= 4002L * 4002, "board didn't allocate direct memory");
+		
+		board.close();
+		
+		long left = direct.getMemoryUsed() - before;
+		check(left == 0, left + " bytes of direct memory still used after close");
+		
+		try { // board can't be used after close
+			
+			board.getState(0, 0);
+			throw new AssertionError("closed board could still be used");
+		
+		} catch(IllegalStateException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * File backed board continues saved game when it is opened again: win counters come from saved tiles, not from zero.
+	 */
+	private static void reopen() throws Exception {
+		
+		Path path = Files.createTempFile("offheap", ".board");
+		Files.delete(path); // board creates the file
+		
+		try {
+			
+			try(OffHeapBoard board = new OffHeapBoard(50, 40, 300, path)) {
+				
+				check(!board.gameWin(), "new file backed board is won before it has been played");
+				
+				board.randomize(7);
+				board.setSurroundAll();
+				board.revealEmpty(25, 20);
+				board.setTileState(0, 0, board.isMine(0, 0) ? State.HIDDEN : State.FLAGGED);
+			}
+			
+			try(OffHeapBoard board = new OffHeapBoard(50, 40, 300, path)) {
+				
+				check(!board.gameWin(), "reopened board is won before any move");
+				
+				for(int y = 0; y < 40; y++) { // finish game: reveal every safe tile and flag every mine
+					for(int x = 0; x < 50; x++) {
+						
+						board.setTileState(x, y, board.isMine(x, y) ? State.FLAGGED : State.REVEALED);
+					}
+				}
+				check(board.gameWin(), "reopened board isn't won after it was finished");
+			}
+		
+		} finally {
+			
+			Files.deleteIfExists(path);
+		}
+	}
+	
+	private static void compare(Board board, OffHeapBoard offHeap, String when) { // every tile must match
+		
+		Point size = board.getBoardSize();
+		
+		for(int y = 0; y < size.y; y++) {
+			for(int x = 0; x < size.x; x++) {
+				
+				Tile t = board.getTile(x, y);
+				
+				check(t.isMine() == offHeap.isMine(x, y), "mine differs at " + x + "," + y + " " + when);
+				check(t.getState() == offHeap.getState(x, y), "state at " + x + "," + y + " is " + offHeap.getState(x, y) + ", expected " + t.getState() + " " + when);
+				if(!t.isMine()) check(t.getSurround() == offHeap.getSurround(x, y), "surround differs at " + x + "," + y + " " + when);
+			}
+		}
+	}
+	
+	private static void check(boolean condition, String message) {
+		
+		if(!condition) throw new AssertionError(message);
+	}
+}
\ No newline at end of file
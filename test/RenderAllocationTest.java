@@ -0,0 +1,161 @@
+package minesweeper;
+
+import java.awt.Point;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+
+import processing.core.PShape;
+
+/**
+ * Checks that drawing a frame in steady state allocates nothing: {@link Program#draw()} is run many times on a board with every tile state
+ * and a hint shown, and bytes allocated by the drawing thread must not grow. Frame goes through input handling, buttons, record text,
+ * count pyramid, tile batches and hint, like a frame of the game, and win check is done after every frame like after a click.
+ * <p>
+ * Drawing goes into a program that ignores every drawing call, so only allocations of our own code are measured, not the renderer's.
+ * Allocated bytes are read from {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * <p>
+ * Run with: java -cp &lt;classes&gt; minesweeper.RenderAllocationTest
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Program#draw()
+ * @see TileBatch
+ * @see MenuGraphics
+ */
+public class RenderAllocationTest {
+	
+	private static final int WARMUP = 20000; // frames drawn before measuring, so every drawing method is compiled
+	private static final int FRAMES = 2000; // measured frames
+	
+	public static void main(String[] args) throws InterruptedException {
+		
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		
+		if(!threads.isThreadAllocatedMemorySupported()) {
+			
+			System.out.println("RenderAllocationTest skipped: allocated bytes can't be measured on this JVM");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		
+		NullApplet p = program();
+		
+		for(int i = 0; i < WARMUP; i++) frame(p);
+		
+		long overhead = Long.MAX_VALUE; // reading allocated bytes can allocate itself, measure it with nothing in between
+		for(int i = 0; i < 10; i++) {
+			
+			long start = threads.getThreadAllocatedBytes(id);
+			overhead = Math.min(overhead, threads.getThreadAllocatedBytes(id) - start);
+		}
+		
+		long start = threads.getThreadAllocatedBytes(id);
+		for(int i = 0; i < FRAMES; i++) frame(p);
+		long allocated = threads.getThreadAllocatedBytes(id) - start - overhead;
+		
+		p.hints.shutdown();
+		p.events.shutdown();
+		
+		if(allocated != 0) throw new AssertionError(allocated + " bytes allocated in " + FRAMES + " frames (" + allocated / FRAMES + " per frame), expected 0");
+		
+		System.out.println("RenderAllocationTest OK");
+	}
+	
+	/**
+	 * Program set up like {@link Program#setup()} does, without window, startup threads or board pool.
+	 * Board has every tile state and its hint has been found, so frames show it.
+	 */
+	private static NullApplet program() throws InterruptedException {
+		
+		NullApplet p = new NullApplet();
+		p.tileColumns = 30;
+		p.tileRows = 16;
+		p.tileWidth = 20;
+		p.tileHeight = 20;
+		p.padding = new int[] {60, 10, 10, 10};
+		p.width = p.tileColumns * p.tileWidth + p.padding[2] + p.padding[3];
+		p.height = p.tileRows * p.tileHeight + p.padding[0] + p.padding[1];
+		p.dif = Program.Difficulty.EASY;
+		p.mines = 99;
+		p.loading = false;
+		p.inputs = new InputQueue(64);
+		
+		p.recordTimes = new HashMap<String, Integer>();
+		for(Program.Difficulty d : Program.Difficulty.values()) p.recordTimes.put(d.toString(), 83456); // record text has minutes, seconds and milliseconds
+		
+		p.tileRenderer = new TileGraphics(p, p.padding);
+		p.tileRenderer.setTextSize(14);
+		p.tileBatch = new TileBatch(p, p.tileRenderer, p.padding);
+		p.pyramid = new CountPyramid();
+		
+		p.menuRenderer = new MenuGraphics(p);
+		p.menuRenderer.setTextSize(20);
+		p.menuRenderer.addButton(new Button(new Point(400, 30), 30, new int[] {0,220,0}, "E"));
+		p.menuRenderer.addButton(new Button(new Point(440, 30), 30, new int[] {220,180,0}, "M"));
+		p.menuRenderer.addButton(new Button(new Point(480, 30), 30, new int[] {220,0,0}, "H"));
+		
+		Board board = new Board(new Point(p.tileWidth, p.tileHeight), new Point(p.tileColumns, p.tileRows), p.mines, p.padding);
+		board.randomize(p.tileWidth, p.tileHeight, 42L);
+		board.setSurroundAll();
+		
+		State[] states = {State.HIDDEN, State.REVEALED, State.FLAGGED}; // mix of states, so every tile group and value is drawn
+		for(int y = 0; y < p.tileRows; y++) {
+			for(int x = 0; x < p.tileColumns; x++) {
+				
+				board.setTileState(x, y, states[(x + y) % states.length]);
+			}
+		}
+		
+		Program.gameBoard = board;
+		p.useBoard(board);
+		
+		p.hints.request(board); // frames poll finished hint and draw its outline
+		while(p.hints.isRunning()) Thread.sleep(1);
+		p.showHint = true;
+		if(p.hints.poll(board) == null) throw new AssertionError("no hint was found, frames wouldn't draw it");
+		
+		return p;
+	}
+	
+	private static void frame(Program p) { // one frame of the game, and win check that follows a click
+		
+		p.draw();
+		if(Program.gameBoard.gameWin()) throw new AssertionError("board with hidden tiles can't be won");
+	}
+	
+	/**
+	 * Program that ignores drawing calls, it has no surface to draw into. Shapes are created without renderer and frames aren't scheduled.
+	 */
+	private static class NullApplet extends Program {
+		
+		@Override public PShape createShape() { return new PShape(); }
+		@Override public void shape(PShape shape) {}
+		@Override public void loop() {}
+		@Override public void noLoop() {}
+		@Override public void redraw() {}
+		@Override public void background(int rgb) {}
+		@Override public void fill(int rgb) {}
+		@Override public void fill(int rgb, float alpha) {}
+		@Override public void fill(float gray) {}
+		@Override public void fill(float gray, float alpha) {}
+		@Override public void fill(float v1, float v2, float v3) {}
+		@Override public void fill(float v1, float v2, float v3, float alpha) {}
+		@Override public void noFill() {}
+		@Override public void stroke(int rgb) {}
+		@Override public void stroke(int rgb, float alpha) {}
+		@Override public void stroke(float gray) {}
+		@Override public void stroke(float gray, float alpha) {}
+		@Override public void stroke(float v1, float v2, float v3) {}
+		@Override public void stroke(float v1, float v2, float v3, float alpha) {}
+		@Override public void noStroke() {}
+		@Override public void strokeWeight(float weight) {}
+		@Override public void rect(float a, float b, float c, float d) {}
+		@Override public void ellipse(float a, float b, float c, float d) {}
+		@Override public void ellipseMode(int mode) {}
+		@Override public void text(String str, float x, float y) {}
+		@Override public void text(String str, float x1, float y1, float x2, float y2) {}
+		@Override public void textAlign(int alignX, int alignY) {}
+		@Override public void textSize(float size) {}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package minesweeper;
+
+import java.awt.Point;
+
+/**
+ * Times the neighbour loops of {@link Board} on a big rectangular board: counting surround values, revealing the whole board
+ * through openings, flood filling every opening and chording (flag and reveal surround) every numbered tile.
+ * Best of several rounds is printed for every phase, so runs on different versions of the board can be compared.
+ * <p>
+ * Run with: java -cp &lt;classes&gt; minesweeper.RevealBenchmark
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see Board
+ * @see Adjacency
+ */
+public class RevealBenchmark {
+	
+	private static final int SIZE = 2048; // columns and rows of the board
+	private static final int MINES = SIZE * SIZE / 8;
+	private static final int ROUNDS = 7; // best round is printed, first ones warm up the JIT
+	
+	public static void main(String[] args) {
+		
+		Board board = new Board(new Point(1, 1), new Point(SIZE, SIZE), MINES, new int[] {0, 0, 0, 0});
+		long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+		String[] phases = {"setSurroundAll", "reveal board", "flood fill", "chord"};
+		long check = 0; // revealed tiles, so phases can't be optimized away
+		
+		for(int round = 0; round < ROUNDS; round++) {
+			
+			board.randomize(1, 1, round);
+			long start = System.nanoTime();
+			board.setSurroundAll();
+			best[0] = Math.min(best[0], System.nanoTime() - start);
+			
+			start = System.nanoTime();
+			for(int y = 0; y < SIZE; y++) { // click every safe tile once, empty ones reveal their opening
+				for(int x = 0; x < SIZE; x++) {
+					
+					Tile t = board.getTile(x, y);
+					if(t.isMine() || t.getState() != State.HIDDEN) continue;
+					
+					if(t.getSurround() == 0) board.revealEmpty(x, y);
+					else board.setTileState(x, y, State.REVEALED);
+				}
+			}
+			best[1] = Math.min(best[1], System.nanoTime() - start);
+			check += revealed(board);
+			
+			board.randomize(1, 1, round);
+			board.setSurroundAll();
+			start = System.nanoTime();
+			for(int y = 0; y < SIZE; y++) { // flag touches the opening, so it is revealed by flood fill instead of its list
+				for(int x = 0; x < SIZE; x++) {
+					
+					Tile t = board.getTile(x, y);
+					if(t.isMine() || t.getSurround() != 0 || t.getState() != State.HIDDEN) continue;
+					
+					board.setTileState(x, y, State.FLAGGED);
+					board.revealEmpty(x, y);
+				}
+			}
+			best[2] = Math.min(best[2], System.nanoTime() - start);
+			check += revealed(board);
+			
+			board.randomize(1, 1, round);
+			board.setSurroundAll();
+			start = System.nanoTime();
+			for(int y = 0; y < SIZE; y++) { // reveal numbered tiles and chord them, flags and reveals spread behind the scan
+				for(int x = 0; x < SIZE; x++) {
+					
+					Tile t = board.getTile(x, y);
+					if(t.isMine() || t.getSurround() == 0) continue;
+					
+					if(t.getState() == State.HIDDEN) board.setTileState(x, y, State.REVEALED);
+					if(t.getState() != State.REVEALED) continue;
+					
+					board.flagSurround(x, y);
+					board.revealSurround(x, y);
+				}
+			}
+			best[3] = Math.min(best[3], System.nanoTime() - start);
+			check += revealed(board);
+		}
+		
+		for(int i = 0; i < phases.length; i++) System.out.printf("%-15s %8.1f ms%n", phases[i], best[i] / 1e6);
+		System.out.println("RevealBenchmark done (" + check + " tiles revealed)");
+	}
+	
+	private static long revealed(Board board) { // count revealed tiles
+		
+		long count = 0;
+		
+		for(Tile[] row : board.getTiles()) {
+			for(Tile t : row) count += t.getState() == State.REVEALED ? 1 : 0;
+		}
+		return count;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,272 @@
+package minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress test for {@link SharedBoard}: many threads reveal, flag and unflag tiles of one seeded board at the same time,
+ * final tiles and counters are compared to the same board played by one thread. Also prints throughput by thread count.
+ * <p>
+ * Threads flag tiles only in pairs (flag and unflag right after), so no tile stays flagged when all threads are done
+ * and the result doesn't depend on how threads were scheduled. A reveal that hits a tile which is flagged for a moment is retried.
+ * <p>
+ * Run with: java -cp &lt;classes&gt; minesweeper.SharedBoardStressTest
+ * 
+ * @author Tuomas Rautanen
+ * 
+ * @see SharedBoard
+ */
+public class SharedBoardStressTest {
+	
+	private static final long SEED = 20160502L; // seed of every board in the test
+	
+	public static void main(String[] args) throws InterruptedException {
+		
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+		
+		clearTogether(threads);
+		revealSubset(threads);
+		throughput();
+		
+		System.out.println("SharedBoardStressTest OK");
+	}
+	
+	/**
+	 * Threads reveal every safe tile while flagging and unflagging random tiles, a watcher checks that win is never reported too early.
+	 */
+	private static void clearTogether(int threads) throws InterruptedException {
+		
+		SharedBoard board = board(300, 200, 9000);
+		int[] safe = safeTiles(board);
+		AtomicBoolean falseWin = new AtomicBoolean();
+		AtomicBoolean done = new AtomicBoolean();
+		
+		Thread watcher = new Thread(() -> { // win must mean that every safe tile really is revealed
+			
+			while(!done.get()) {
+				
+				if(board.gameWin() && unrevealedSafe(board) != 0) falseWin.set(true);
+			}
+		});
+		watcher.start();
+		
+		run(threads, t -> {
+			
+			Random random = new Random(SEED + t);
+			
+			for(int i = 0; i < 20000; i++) {
+				
+				int pos = random.nextInt(board.getColumns() * board.getRows());
+				int x = pos % board.getColumns();
+				int y = pos / board.getColumns();
+				
+				if(random.nextBoolean()) { // flag and unflag, toggle doesn't change revealed tiles
+					
+					board.toggleFlag(x, y);
+					board.toggleFlag(x, y);
+				
+				} else if(!board.isMine(x, y)) revealSafe(board, x, y);
+			}
+			for(int i = t; i < safe.length; i += threads) { // make sure every safe tile is revealed by someone
+				
+				revealSafe(board, safe[i] % board.getColumns(), safe[i] / board.getColumns());
+			}
+		});
+		done.set(true);
+		watcher.join();
+		
+		SharedBoard reference = board(300, 200, 9000);
+		for(int pos : safe) reference.reveal(pos % reference.getColumns(), pos / reference.getColumns());
+		
+		check(!falseWin.get(), "gameWin() was true while safe tiles were still hidden");
+		compare(board, reference);
+		check(board.gameWin() && reference.gameWin(), "board isn't won after every safe tile was revealed");
+		check(board.getSafeLeft() == 0, "safe tiles left " + board.getSafeLeft() + ", expected 0");
+	}
+	
+	/**
+	 * Threads reveal same seeded set of tiles in different orders while flagging and unflagging mines, flood fills must meet without losing tiles.
+	 */
+	private static void revealSubset(int threads) throws InterruptedException {
+		
+		SharedBoard board = board(400, 300, 24000);
+		int[] safe = safeTiles(board);
+		int[] picks = new int[200];
+		Random random = new Random(SEED);
+		
+		for(int i = 0; i < picks.length; i++) picks[i] = safe[random.nextInt(safe.length)];
+		
+		int[] mines = new int[board.getMines()];
+		int m = 0;
+		for(int pos = 0; pos < board.getColumns() * board.getRows(); pos++) {
+			
+			if(board.isMine(pos % board.getColumns(), pos / board.getColumns())) mines[m++] = pos;
+		}
+		
+		run(threads, t -> {
+			
+			Random own = new Random(SEED + t);
+			
+			for(int i = 0; i < picks.length; i++) {
+				
+				int pos = picks[(i + t * 37) % picks.length]; // every thread starts from a different pick
+				board.reveal(pos % board.getColumns(), pos / board.getColumns());
+				
+				int mine = mines[own.nextInt(mines.length)]; // mines are never revealed, so flags on them don't change reveals
+				board.toggleFlag(mine % board.getColumns(), mine / board.getColumns());
+				board.toggleFlag(mine % board.getColumns(), mine / board.getColumns());
+			}
+		});
+		
+		SharedBoard reference = board(400, 300, 24000);
+		for(int pos : picks) reference.reveal(pos % reference.getColumns(), pos / reference.getColumns());
+		
+		compare(board, reference);
+		check(board.getSafeLeft() == reference.getSafeLeft(), "safe tiles left " + board.getSafeLeft() + ", expected " + reference.getSafeLeft());
+		check(board.getSafeLeft() == unrevealedSafe(board), "safe tiles left " + board.getSafeLeft() + " doesn't match board " + unrevealedSafe(board));
+		check(board.gameWin() == reference.gameWin(), "gameWin() differs from single thread");
+	}
+	
+	/**
+	 * Clear one big board with 1, 2, 4 ... threads and print tiles per second. Adding threads must not make clearing collapse,
+	 * and with at least two cores two threads must clear the board faster than one. With one core threads can't run
+	 * at the same time, so the speedup check is skipped.
+	 */
+	private static void throughput() throws InterruptedException {
+		
+		int cores = Runtime.getRuntime().availableProcessors();
+		int max = Math.max(4, cores);
+		double single = 0;
+		
+		for(int threads = 1; threads <= max; threads *= 2) {
+			
+			double best = 0;
+			
+			for(int round = 0; round < 3; round++) { // best of three rounds, first ones warm up the JIT
+				
+				SharedBoard board = board(1000, 1000, 150000);
+				int[] safe = safeTiles(board);
+				int count = threads;
+				
+				long start = System.nanoTime();
+				run(threads, t -> {
+					
+					for(int i = t; i < safe.length; i += count) board.reveal(safe[i] % board.getColumns(), safe[i] / board.getColumns());
+				});
+				long time = System.nanoTime() - start;
+				
+				check(board.gameWin(), "board isn't won after clearing it with " + threads + " threads");
+				best = Math.max(best, safe.length * 1e9 / time);
+			}
+			
+			if(threads == 1) single = best;
+			System.out.printf("%d threads: %.1f M tiles/s (%.2fx)%n", threads, best / 1e6, best / single);
+			
+			check(best >= single * 0.5, threads + " threads cleared board at less than half of single thread speed");
+			if(threads == 2 && cores >= 2) check(best > single, "2 threads cleared board at " + String.format("%.2f", best / single) + "x single thread speed, expected faster");
+		}
+		if(cores < 2) System.out.println("Speedup check skipped: only " + cores + " core available, threads can't run at the same time");
+	}
+	
+	private interface Worker { // body of one test thread
+		
+		void run(int t);
+	}
+	
+	private static void run(int threads, Worker worker) throws InterruptedException { // run worker on threads that start at the same time, rethrow first failure
+		
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> list = new ArrayList<Thread>();
+		List<Throwable> errors = new ArrayList<Throwable>();
+		
+		for(int i = 0; i < threads; i++) {
+			
+			int t = i;
+			Thread thread = new Thread(() -> {
+				
+				try {
+					
+					start.await();
+					worker.run(t);
+				
+				} catch(Throwable e) {
+					
+					synchronized(errors) {
+						errors.add(e);
+					}
+				}
+			}, "stress-" + i);
+			list.add(thread);
+			thread.start();
+		}
+		
+		start.countDown();
+		for(Thread thread : list) thread.join();
+		
+		if(!errors.isEmpty()) throw new AssertionError("stress thread failed", errors.get(0));
+	}
+	
+	private static void revealSafe(SharedBoard board, int x, int y) { // reveal tile without mine, retry while someone has it flagged
+		
+		while(board.getState(x, y) != State.REVEALED) {
+			
+			check(board.reveal(x, y), "safe tile " + x + "," + y + " exploded");
+			Thread.yield();
+		}
+	}
+	
+	private static SharedBoard board(int columns, int rows, int mines) { // seeded board ready to be played
+		
+		SharedBoard board = new SharedBoard(columns, rows, mines);
+		board.randomize(SEED);
+		board.setSurroundAll();
+		return board;
+	}
+	
+	private static int[] safeTiles(SharedBoard board) { // positions (y * columns + x) of tiles without mines
+		
+		int[] safe = new int[board.getColumns() * board.getRows() - board.getMines()];
+		int i = 0;
+		
+		for(int pos = 0; pos < board.getColumns() * board.getRows(); pos++) {
+			
+			if(!board.isMine(pos % board.getColumns(), pos / board.getColumns())) safe[i++] = pos;
+		}
+		return safe;
+	}
+	
+	private static long unrevealedSafe(SharedBoard board) { // count safe tiles that aren't revealed by scanning the board
+		
+		long count = 0;
+		
+		for(int y = 0; y < board.getRows(); y++) {
+			for(int x = 0; x < board.getColumns(); x++) {
+				
+				if(!board.isMine(x, y) && board.getState(x, y) != State.REVEALED) count++;
+			}
+		}
+		return count;
+	}
+	
+	private static void compare(SharedBoard board, SharedBoard reference) { // every tile must match the single threaded board
+		
+		check(board.isExploded() == reference.isExploded(), "exploded differs from single thread");
+		
+		for(int y = 0; y < board.getRows(); y++) {
+			for(int x = 0; x < board.getColumns(); x++) {
+				
+				check(board.getState(x, y) == reference.getState(x, y),
+						"tile " + x + "," + y + " is " + board.getState(x, y) + ", expected " + reference.getState(x, y));
+				check(board.getSurround(x, y) == reference.getSurround(x, y), "surround of tile " + x + "," + y + " differs");
+			}
+		}
+	}
+	
+	private static void check(boolean condition, String message) {
+		
+		if(!condition) throw new AssertionError(message);
+	}
+}
\ No newline at end of file